@@ -0,0 +1,13 @@
+package com.edteam.catalog;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ApiCatalogStubApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(ApiCatalogStubApplication.class, args);
+    }
+
+}
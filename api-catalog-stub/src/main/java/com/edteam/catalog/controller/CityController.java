@@ -0,0 +1,51 @@
+package com.edteam.catalog.controller;
+
+import com.edteam.catalog.dto.CityDTO;
+import com.edteam.catalog.repository.CityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+
+@RestController
+@RequestMapping("/city")
+public class CityController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CityController.class);
+
+    private final CityRepository repository;
+
+    private final Duration latency;
+
+    @Autowired
+    public CityController(CityRepository repository, @Value("${catalog.latency:0}") long latency) {
+        this.repository = repository;
+        this.latency = Duration.ofMillis(latency);
+    }
+
+    @GetMapping("/{code}")
+    public Mono<ResponseEntity<CityDTO>> getCity(@PathVariable String code) {
+        LOGGER.info("Obtain the city with the code {}", code);
+        return Mono.justOrEmpty(repository.findByCode(code)).map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build()).delaySubscription(latency);
+    }
+
+    @GetMapping
+    public Flux<CityDTO> getCities(@RequestParam(required = false) List<String> codes) {
+        LOGGER.info("Obtain the cities with the codes {}", codes);
+        Flux<CityDTO> cities = codes == null ? Flux.fromIterable(repository.findAll())
+                : Flux.fromIterable(codes).flatMap(code -> Mono.justOrEmpty(repository.findByCode(code)));
+        return cities.delaySubscription(latency);
+    }
+}
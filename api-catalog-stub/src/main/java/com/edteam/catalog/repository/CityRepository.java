@@ -0,0 +1,48 @@
+package com.edteam.catalog.repository;
+
+import com.edteam.catalog.dto.CityDTO;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+@Component
+public class CityRepository {
+
+    private final Map<String, CityDTO> cities = new LinkedHashMap<>();
+
+    public CityRepository() {
+        add("Buenos Aires", "BUE", "America/Argentina/Buenos_Aires");
+        add("Ezeiza", "EZE", "America/Argentina/Buenos_Aires");
+        add("Cordoba", "COR", "America/Argentina/Cordoba");
+        add("Mendoza", "MDZ", "America/Argentina/Mendoza");
+        add("Santiago", "SCL", "America/Santiago");
+        add("Lima", "LIM", "America/Lima");
+        add("Bogota", "BOG", "America/Bogota");
+        add("Mexico", "MEX", "America/Mexico_City");
+        add("Sao Paulo", "SAO", "America/Sao_Paulo");
+        add("Rio de Janeiro", "RIO", "America/Sao_Paulo");
+        add("Miami", "MIA", "America/New_York");
+        add("New York", "NYC", "America/New_York");
+        add("Los Angeles", "LAX", "America/Los_Angeles");
+        add("Madrid", "MAD", "Europe/Madrid");
+        add("Barcelona", "BCN", "Europe/Madrid");
+        add("Roma", "ROM", "Europe/Rome");
+        add("Paris", "PAR", "Europe/Paris");
+        add("Londres", "LON", "Europe/London");
+    }
+
+    public Optional<CityDTO> findByCode(String code) {
+        return Optional.ofNullable(cities.get(code));
+    }
+
+    public Collection<CityDTO> findAll() {
+        return cities.values();
+    }
+
+    private void add(String name, String code, String timeZone) {
+        cities.put(code, new CityDTO(name, code, timeZone));
+    }
+}
@@ -0,0 +1,109 @@
+package com.edteam.reservations.connector;
+
+import com.edteam.reservations.connector.configuration.HttpConnectorConfiguration;
+import com.edteam.reservations.connector.configuration.IndexConfiguration;
+import com.edteam.reservations.connector.response.CityDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Component
+public class CityIndexLoader implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CityIndexLoader.class);
+    private final String HOST = "api-catalog";
+
+    private final String ENDPOINT = "get-all-cities";
+
+    private final Optional<WebClient> client;
+
+    private final IndexConfiguration configuration;
+
+    private final ResilienceRegistry resilience;
+
+    private final AtomicReference<CityIndex> index = new AtomicReference<>(CityIndex.empty());
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    private Disposable refresh;
+
+    @Autowired
+    public CityIndexLoader(WebClientRegistry registry, ResilienceRegistry resilience,
+            HttpConnectorConfiguration configuration, MeterRegistry meterRegistry) {
+        this.resilience = resilience;
+        this.configuration = configuration.getHosts().get(HOST).getIndex();
+        this.client = this.configuration.isEnabled() ? registry.findClient(HOST, ENDPOINT) : Optional.empty();
+
+        this.hits = meterRegistry.counter("catalog.city.index.requests", "result", "hit");
+        this.misses = meterRegistry.counter("catalog.city.index.requests", "result", "miss");
+        Gauge.builder("catalog.city.index.size", index, value -> value.get().getSize()).register(meterRegistry);
+        Gauge.builder("catalog.city.index.age", index,
+                value -> Duration.between(value.get().getLoadedAt(), Instant.now()).toSeconds()).baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("catalog.city.index.hit.ratio", this, loader -> loader.hitRatio()).register(meterRegistry);
+    }
+
+    public CityDTO find(String code) {
+        if (client.isEmpty()) {
+            return null;
+        }
+
+        CityDTO city = index.get().get(code);
+        if (city == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return city;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRefresh() {
+        client.ifPresent(webClient -> refresh = Flux
+                .interval(Duration.ZERO, Duration.ofMillis(configuration.getRefreshInterval())).onBackpressureDrop()
+                .concatMap(tick -> load(webClient)).subscribe());
+    }
+
+    @Override
+    public void destroy() {
+        if (refresh != null) {
+            refresh.dispose();
+        }
+    }
+
+    private Mono<CityIndex> load(WebClient webClient) {
+        LOGGER.info("loading all the cities from api-catalog");
+
+        Mono<CityIndex> call = webClient.get().retrieve().bodyToFlux(CityDTO.class).collectList().map(CityIndex::of);
+        return resilience.decorate(HOST, ENDPOINT, call).doOnNext(loaded -> {
+            index.set(loaded);
+            LOGGER.info("loaded {} cities from api-catalog", loaded.getSize());
+        }).onErrorResume(e -> {
+            LOGGER.warn("the cities could not be loaded from api-catalog, keeping the previous ones", e);
+            return Mono.empty();
+        });
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+}
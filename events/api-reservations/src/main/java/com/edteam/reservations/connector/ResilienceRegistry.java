@@ -0,0 +1,110 @@
+package com.edteam.reservations.connector;
+
+import com.edteam.reservations.connector.configuration.BulkheadConfiguration;
+import com.edteam.reservations.connector.configuration.CircuitBreakerConfiguration;
+import com.edteam.reservations.connector.configuration.HttpConnectorConfiguration;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+public class ResilienceRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResilienceRegistry.class);
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+
+    private final BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+
+    private final Map<String, CircuitBreaker> circuitBreakers = new HashMap<>();
+
+    private final Map<String, Bulkhead> bulkheads = new HashMap<>();
+
+    @Autowired
+    public ResilienceRegistry(HttpConnectorConfiguration configuration, MeterRegistry meterRegistry) {
+        configuration.getHosts().forEach((hostName, hostConfiguration) -> hostConfiguration.getEndpoints()
+                .forEach((endpointName, endpointConfiguration) -> {
+                    String name = getName(hostName, endpointName);
+                    if (endpointConfiguration.getCircuitBreaker().isEnabled()) {
+                        circuitBreakers.put(name,
+                                createCircuitBreaker(name, endpointConfiguration.getCircuitBreaker(), meterRegistry));
+                    }
+                    if (endpointConfiguration.getBulkhead().isEnabled()) {
+                        bulkheads.put(name, createBulkhead(name, endpointConfiguration.getBulkhead(), meterRegistry));
+                    }
+                }));
+
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+    }
+
+    public <T> Mono<T> decorate(String host, String endpoint, Mono<T> call) {
+        String name = getName(host, endpoint);
+        Mono<T> decorated = call;
+
+        Bulkhead bulkhead = bulkheads.get(name);
+        if (bulkhead != null) {
+            decorated = decorated.transformDeferred(BulkheadOperator.of(bulkhead));
+        }
+
+        CircuitBreaker circuitBreaker = circuitBreakers.get(name);
+        if (circuitBreaker != null) {
+            decorated = decorated.transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+        }
+        return decorated;
+    }
+
+    private CircuitBreaker createCircuitBreaker(String name, CircuitBreakerConfiguration configuration,
+            MeterRegistry meterRegistry) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(configuration.getFailureRateThreshold())
+                .slowCallDurationThreshold(Duration.ofMillis(configuration.getSlowCallDurationThreshold()))
+                .slowCallRateThreshold(configuration.getSlowCallRateThreshold())
+                .slidingWindowSize(configuration.getSlidingWindowSize())
+                .minimumNumberOfCalls(configuration.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(Duration.ofMillis(configuration.getWaitDurationInOpenState()))
+                .permittedNumberOfCallsInHalfOpenState(configuration.getPermittedNumberOfCallsInHalfOpenState())
+                .ignoreExceptions(BulkheadFullException.class).build();
+
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(name, config);
+        circuitBreaker.getEventPublisher().onStateTransition(event -> {
+            LOGGER.warn("The circuit breaker of {} changed {}", name, event.getStateTransition());
+            meterRegistry.counter("http.connector.circuitbreaker.transitions", "name", name, "from",
+                    event.getStateTransition().getFromState().name(), "to",
+                    event.getStateTransition().getToState().name()).increment();
+        });
+        return circuitBreaker;
+    }
+
+    private Bulkhead createBulkhead(String name, BulkheadConfiguration configuration, MeterRegistry meterRegistry) {
+        BulkheadConfig config = BulkheadConfig.custom().maxConcurrentCalls(configuration.getMaxConcurrentCalls())
+                .maxWaitDuration(Duration.ZERO).build();
+
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(name, config);
+        bulkhead.getEventPublisher().onCallRejected(
+                event -> meterRegistry.counter("http.connector.bulkhead.rejections", "name", name).increment());
+        return bulkhead;
+    }
+
+    private String getName(String host, String endpoint) {
+        return host + "." + endpoint;
+    }
+}
@@ -0,0 +1,25 @@
+package com.edteam.reservations.connector;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@Endpoint(id = "connectortimeouts")
+public class TimeoutEndpoint {
+
+    private final TimeoutRegistry timeouts;
+
+    @Autowired
+    public TimeoutEndpoint(TimeoutRegistry timeouts) {
+        this.timeouts = timeouts;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> timeouts() {
+        return timeouts.getTimeouts();
+    }
+}
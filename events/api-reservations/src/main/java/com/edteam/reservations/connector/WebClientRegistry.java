@@ -0,0 +1,96 @@
+package com.edteam.reservations.connector;
+
+import com.edteam.reservations.connector.configuration.EndpointConfiguration;
+import com.edteam.reservations.connector.configuration.HostConfiguration;
+import com.edteam.reservations.connector.configuration.HttpConnectorConfiguration;
+import com.edteam.reservations.connector.configuration.PoolConfiguration;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class WebClientRegistry implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebClientRegistry.class);
+
+    private final Map<String, ConnectionProvider> providers = new HashMap<>();
+
+    private final Map<String, Map<String, WebClient>> clients = new HashMap<>();
+
+    private final TimeoutRegistry timeouts;
+
+    @Autowired
+    public WebClientRegistry(HttpConnectorConfiguration configuration, TimeoutRegistry timeouts) {
+        this.timeouts = timeouts;
+        configuration.getHosts().forEach((hostName, hostConfiguration) -> {
+            ConnectionProvider provider = createProvider(hostName, hostConfiguration.getPool());
+            providers.put(hostName, provider);
+
+            Map<String, WebClient> endpoints = new HashMap<>();
+            hostConfiguration.getEndpoints()
+                    .forEach((endpointName, endpointConfiguration) -> endpoints.put(endpointName,
+                            createClient(hostName, endpointName, hostConfiguration, endpointConfiguration, provider)));
+            clients.put(hostName, endpoints);
+        });
+    }
+
+    public WebClient getClient(String host, String endpoint) {
+        return findClient(host, endpoint).orElseThrow(() -> new IllegalArgumentException(
+                String.format("There is no configuration for %s - %s", host, endpoint)));
+    }
+
+    public Optional<WebClient> findClient(String host, String endpoint) {
+        return Optional.ofNullable(clients.getOrDefault(host, Map.of()).get(endpoint));
+    }
+
+    @Override
+    public void destroy() {
+        providers.values().forEach(ConnectionProvider::dispose);
+    }
+
+    private ConnectionProvider createProvider(String hostName, PoolConfiguration pool) {
+        LOGGER.info("Creating connection pool for {} with {} connections", hostName, pool.getMaxConnections());
+
+        return ConnectionProvider.builder(hostName).maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(pool.getPendingAcquireTimeout()))
+                .maxIdleTime(Duration.ofMillis(pool.getMaxIdleTime()))
+                .evictInBackground(Duration.ofMillis(pool.getEvictionInterval())).metrics(true).build();
+    }
+
+    private WebClient createClient(String hostName, String endpointName, HostConfiguration hostConfiguration,
+            EndpointConfiguration endpointConfiguration, ConnectionProvider provider) {
+        // The handlers added to a pooled connection are removed when it is released, so the write timeout is added
+        // on each request and the read timeout is applied as a response timeout, which can change with the latency.
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, endpointConfiguration.getConnectionTimeout())
+                .doOnRequest((request, connection) -> {
+                    request.responseTimeout(timeouts.getReadTimeout(hostName, endpointName));
+                    connection.addHandlerFirst(
+                            new WriteTimeoutHandler(endpointConfiguration.getWriteTimeout(), TimeUnit.MILLISECONDS));
+                });
+
+        return WebClient.builder()
+                .baseUrl("http://" + hostConfiguration.getHost() + ":" + hostConfiguration.getPort()
+                        + endpointConfiguration.getUrl())
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .clientConnector(new ReactorClientHttpConnector(httpClient)).build();
+    }
+}
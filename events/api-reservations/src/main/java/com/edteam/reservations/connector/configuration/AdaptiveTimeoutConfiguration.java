@@ -0,0 +1,54 @@
+package com.edteam.reservations.connector.configuration;
+
+public class AdaptiveTimeoutConfiguration {
+
+    private boolean enabled = false;
+
+    private double percentile = 0.999;
+
+    private double factor = 2.0;
+
+    private int minTimeout = 100;
+
+    private int maxTimeout = 5000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public double getFactor() {
+        return factor;
+    }
+
+    public void setFactor(double factor) {
+        this.factor = factor;
+    }
+
+    public int getMinTimeout() {
+        return minTimeout;
+    }
+
+    public void setMinTimeout(int minTimeout) {
+        this.minTimeout = minTimeout;
+    }
+
+    public int getMaxTimeout() {
+        return maxTimeout;
+    }
+
+    public void setMaxTimeout(int maxTimeout) {
+        this.maxTimeout = maxTimeout;
+    }
+}
@@ -0,0 +1,44 @@
+package com.edteam.reservations.connector.configuration;
+
+public class CacheConfiguration {
+
+    private boolean enabled = true;
+
+    private int maximumSize = 1000;
+
+    private int ttl = 3600000;
+
+    private int negativeTtl = 60000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public int getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(int ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getNegativeTtl() {
+        return negativeTtl;
+    }
+
+    public void setNegativeTtl(int negativeTtl) {
+        this.negativeTtl = negativeTtl;
+    }
+}
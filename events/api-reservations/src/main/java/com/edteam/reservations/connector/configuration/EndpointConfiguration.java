@@ -10,6 +10,14 @@ public class EndpointConfiguration {
 
     private int connectionTimeout;
 
+    private CircuitBreakerConfiguration circuitBreaker = new CircuitBreakerConfiguration();
+
+    private BulkheadConfiguration bulkhead = new BulkheadConfiguration();
+
+    private HedgingConfiguration hedging = new HedgingConfiguration();
+
+    private AdaptiveTimeoutConfiguration adaptiveTimeout = new AdaptiveTimeoutConfiguration();
+
     public String getUrl() {
         return url;
     }
@@ -41,4 +49,36 @@ public class EndpointConfiguration {
     public void setWriteTimeout(int writeTimeout) {
         this.writeTimeout = writeTimeout;
     }
+
+    public CircuitBreakerConfiguration getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public void setCircuitBreaker(CircuitBreakerConfiguration circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public BulkheadConfiguration getBulkhead() {
+        return bulkhead;
+    }
+
+    public void setBulkhead(BulkheadConfiguration bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    public HedgingConfiguration getHedging() {
+        return hedging;
+    }
+
+    public void setHedging(HedgingConfiguration hedging) {
+        this.hedging = hedging;
+    }
+
+    public AdaptiveTimeoutConfiguration getAdaptiveTimeout() {
+        return adaptiveTimeout;
+    }
+
+    public void setAdaptiveTimeout(AdaptiveTimeoutConfiguration adaptiveTimeout) {
+        this.adaptiveTimeout = adaptiveTimeout;
+    }
 }
@@ -0,0 +1,24 @@
+package com.edteam.reservations.connector.configuration;
+
+public class IndexConfiguration {
+
+    private boolean enabled = true;
+
+    private int refreshInterval = 600000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(int refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+}
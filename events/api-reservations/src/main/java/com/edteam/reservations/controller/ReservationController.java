@@ -2,17 +2,28 @@ package com.edteam.reservations.controller;
 
 import com.edteam.reservations.controller.resource.ReservationResource;
 import com.edteam.reservations.dto.ReservationDTO;
+import com.edteam.reservations.dto.ReservationPageDTO;
+import com.edteam.reservations.dto.ReservationResultDTO;
 import com.edteam.reservations.dto.SearchReservationCriteriaDTO;
+import com.edteam.reservations.service.IdempotencyService;
 import com.edteam.reservations.service.ReservationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.List;
+
 @RestController
 @RequestMapping("/reservation")
 @Validated
@@ -20,28 +31,57 @@ public class ReservationController implements ReservationResource {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ReservationController.class);
     private final ReservationService service;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public ReservationController(ReservationService service) {
+    public ReservationController(ReservationService service, IdempotencyService idempotencyService) {
         this.service = service;
+        this.idempotencyService = idempotencyService;
     }
 
-    @GetMapping
+    @GetMapping(produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.TEXT_EVENT_STREAM_VALUE })
     public Flux<ReservationDTO> getReservations(SearchReservationCriteriaDTO criteria) {
         LOGGER.info("Obtain all the reservations");
         return service.getReservations(criteria);
     }
 
+    @GetMapping("/page")
+    public Mono<ReservationPageDTO> getReservationPage(SearchReservationCriteriaDTO criteria,
+            @RequestParam(required = false) String cursor) {
+        LOGGER.info("Obtain a page of the reservations");
+        return service.getReservationPage(criteria, cursor);
+    }
+
     @GetMapping("/{id}")
-    public Mono<ReservationDTO> getReservationById(@PathVariable Long id) {
+    public Mono<ResponseEntity<ReservationDTO>> getReservationById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         LOGGER.info("Obtain information from a reservation with {}", id);
-        return service.getReservationById(id);
+        if (ifNoneMatch == null) {
+            return service.getReservationById(id).map(this::withETag);
+        }
+
+        // When the client has a copy only the version is read, the reservation is loaded only if it changed
+        return service.getVersion(id).flatMap(version -> {
+            String eTag = eTag(id, version);
+            if (matches(ifNoneMatch, eTag)) {
+                return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).<ReservationDTO> build());
+            }
+            return service.getReservationById(id).map(this::withETag);
+        });
     }
 
     @PostMapping
-    public Mono<ReservationDTO> save(@RequestBody ReservationDTO reservation) {
+    public Mono<ReservationDTO> save(@RequestBody ReservationDTO reservation,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey, Principal principal) {
         LOGGER.info("Saving new reservation");
-        return service.save(reservation);
+        return idempotencyService.execute(principal, idempotencyKey, reservation, () -> service.save(reservation));
+    }
+
+    @PostMapping(value = "/bulk", produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public Flux<ReservationResultDTO> saveAll(@RequestBody List<ReservationDTO> reservations) {
+        LOGGER.info("Saving {} new reservations", reservations.size());
+        return service.saveAll(reservations);
     }
 
     @PutMapping("/{id}")
@@ -52,9 +92,22 @@ public class ReservationController implements ReservationResource {
     }
 
     @DeleteMapping("/{id}")
-    public Mono<Void> delete(@PathVariable Long id) {
+    public Mono<Void> delete(@PathVariable Long id, @RequestParam(required = false) Long version) {
         LOGGER.info("Deleting a reservation with {}", id);
-        return service.delete(id);
+        return service.delete(id, version);
     }
 
+    private ResponseEntity<ReservationDTO> withETag(ReservationDTO reservation) {
+        return ResponseEntity.ok().eTag(eTag(reservation.getId(), reservation.getVersion())).body(reservation);
+    }
+
+    // The version increases with every change of the reservation, so together with the id it identifies the content
+    private String eTag(Long id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    private boolean matches(String ifNoneMatch, String eTag) {
+        return Arrays.stream(ifNoneMatch.split(",")).map(String::trim)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(eTag) || tag.equals("W/" + eTag));
+    }
 }
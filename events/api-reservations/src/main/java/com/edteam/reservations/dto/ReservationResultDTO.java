@@ -0,0 +1,39 @@
+package com.edteam.reservations.dto;
+
+import java.util.List;
+
+public class ReservationResultDTO {
+    private int index;
+    private Long id;
+    private int status;
+    private String description;
+    private List<String> reasons;
+
+    public ReservationResultDTO(int index, Long id, int status, String description, List<String> reasons) {
+        this.index = index;
+        this.id = id;
+        this.status = status;
+        this.description = description;
+        this.reasons = reasons;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<String> getReasons() {
+        return reasons;
+    }
+}
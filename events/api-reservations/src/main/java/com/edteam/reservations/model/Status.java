@@ -1,5 +1,16 @@
 package com.edteam.reservations.model;
 
+import java.util.Set;
+
 public enum Status {
-    CREATED, IN_PROGRESS, FINISHED
+    CREATED, IN_PROGRESS, FINISHED;
+
+    // The statuses from which a reservation can change to this one
+    public Set<Status> getPredecessors() {
+        return switch (this) {
+        case CREATED -> Set.of();
+        case IN_PROGRESS -> Set.of(CREATED);
+        case FINISHED -> Set.of(CREATED, IN_PROGRESS);
+        };
+    }
 }
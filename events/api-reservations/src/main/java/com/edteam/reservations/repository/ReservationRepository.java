@@ -4,20 +4,36 @@ import com.edteam.reservations.model.Reservation;
 import com.edteam.reservations.model.Status;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+public interface ReservationRepository extends JpaRepository<Reservation, Long>, ReservationProjectionRepository {
 
+    @EntityGraph(Reservation.ITINERARY_GRAPH)
     @Transactional(readOnly = true, timeout = 30)
     List<Reservation> findAll(Specification<Reservation> specification, Pageable pageable);
 
+    @EntityGraph(Reservation.ITINERARY_GRAPH)
+    Optional<Reservation> findById(Long id);
+
+    // The status only changes from one of the predecessors, so the transition is checked in the same statement
     @Modifying
     @Transactional
-    @Query("UPDATE Reservation e SET e.status = ?2 WHERE e.id = ?1")
-    void updateStatusById(Long id, Status status);
-}
\ No newline at end of file
+    @Query("UPDATE Reservation e SET e.status = ?2, e.version = e.version + 1 WHERE e.id = ?1 AND e.status IN ?3")
+    int updateStatusById(Long id, Status status, Collection<Status> predecessors);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT e.version FROM Reservation e WHERE e.id = ?1")
+    Optional<Long> findVersionById(Long id);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT e.status FROM Reservation e WHERE e.id = ?1")
+    Optional<Status> findStatusById(Long id);
+}
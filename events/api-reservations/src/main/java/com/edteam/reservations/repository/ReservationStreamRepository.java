@@ -0,0 +1,14 @@
+package com.edteam.reservations.repository;
+
+import com.edteam.reservations.model.Reservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import reactor.core.publisher.Flux;
+
+import java.util.function.Function;
+
+public interface ReservationStreamRepository {
+
+    <T> Flux<T> stream(Specification<Reservation> specification, Pageable pageable, int fetchSize,
+            Function<Reservation, T> mapper);
+}
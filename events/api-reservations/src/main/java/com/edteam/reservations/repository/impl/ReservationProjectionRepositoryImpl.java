@@ -0,0 +1,128 @@
+package com.edteam.reservations.repository.impl;
+
+import com.edteam.reservations.dto.ItineraryDTO;
+import com.edteam.reservations.dto.PassengerDTO;
+import com.edteam.reservations.dto.PriceDTO;
+import com.edteam.reservations.dto.ReservationDTO;
+import com.edteam.reservations.dto.SegmentDTO;
+import com.edteam.reservations.dto.StatusDTO;
+import com.edteam.reservations.model.Itinerary;
+import com.edteam.reservations.model.Price;
+import com.edteam.reservations.model.Reservation;
+import com.edteam.reservations.model.Status;
+import com.edteam.reservations.repository.ReservationProjectionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ReservationProjectionRepositoryImpl implements ReservationProjectionRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // The columns are selected as scalar rows, so no entity is managed, dirty checked or passed to the listeners. The
+    // page is read with one query and the passengers and the segments of all its reservations with one query each.
+    @Override
+    public List<ReservationDTO> findAllProjected(Specification<Reservation> specification, Pageable pageable) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Reservation> root = query.from(Reservation.class);
+        Join<Reservation, Itinerary> itinerary = root.join("itinerary", JoinType.LEFT);
+        Join<Itinerary, Price> price = itinerary.join("price", JoinType.LEFT);
+        query.multiselect(root.get("id"), root.get("version"), root.get("creationDate"), root.get("status"),
+                itinerary.get("id"), itinerary.get("version"), price.get("totalPrice"), price.get("totalTax"),
+                price.get("basePrice"));
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        Map<Long, ReservationDTO> reservations = new LinkedHashMap<>();
+        Map<Long, ItineraryDTO> itineraries = new HashMap<>();
+        for (Tuple row : entityManager.createQuery(query).setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize()).getResultList()) {
+            ReservationDTO reservation = new ReservationDTO();
+            reservation.setId(row.get(0, Long.class));
+            reservation.setVersion(row.get(1, Long.class));
+            reservation.setCreationDate(row.get(2, LocalDate.class));
+            reservation.setStatus(StatusDTO.valueOf(row.get(3, Status.class).name()));
+            reservation.setPassengers(new ArrayList<>());
+
+            Long itineraryId = row.get(4, Long.class);
+            if (itineraryId != null) {
+                ItineraryDTO itineraryDTO = new ItineraryDTO();
+                itineraryDTO.setId(itineraryId);
+                itineraryDTO.setVersion(row.get(5, Long.class));
+                itineraryDTO.setSegment(new ArrayList<>());
+                itineraryDTO.setPrice(getPrice(row.get(6, BigDecimal.class), row.get(7, BigDecimal.class),
+                        row.get(8, BigDecimal.class)));
+                reservation.setItinerary(itineraryDTO);
+                itineraries.put(itineraryId, itineraryDTO);
+            }
+            reservations.put(reservation.getId(), reservation);
+        }
+
+        if (reservations.isEmpty()) {
+            return List.of();
+        }
+
+        for (Tuple row : entityManager.createQuery(
+                "SELECT r.id, p.firstName, p.lastName, p.documentNumber, p.documentType, p.birthday FROM Reservation r "
+                        + "JOIN r.passengers p WHERE r.id IN ?1 ORDER BY p.lastName",
+                Tuple.class).setParameter(1, reservations.keySet()).getResultList()) {
+            PassengerDTO passenger = new PassengerDTO();
+            passenger.setFirstName(row.get(1, String.class));
+            passenger.setLastName(row.get(2, String.class));
+            passenger.setDocumentNumber(row.get(3, String.class));
+            passenger.setDocumentType(row.get(4, String.class));
+            passenger.setBirthday(row.get(5, LocalDate.class));
+            reservations.get(row.get(0, Long.class)).getPassengers().add(passenger);
+        }
+
+        if (!itineraries.isEmpty()) {
+            for (Tuple row : entityManager
+                    .createQuery(
+                            "SELECT i.id, s.origin, s.destination, s.departure, s.arrival, s.carrier FROM Itinerary i "
+                                    + "JOIN i.segment s WHERE i.id IN ?1 ORDER BY s.id",
+                            Tuple.class)
+                    .setParameter(1, itineraries.keySet()).getResultList()) {
+                SegmentDTO segment = new SegmentDTO();
+                segment.setOrigin(row.get(1, String.class));
+                segment.setDestination(row.get(2, String.class));
+                segment.setDeparture(row.get(3, String.class));
+                segment.setArrival(row.get(4, String.class));
+                segment.setCarrier(row.get(5, String.class));
+                itineraries.get(row.get(0, Long.class)).getSegment().add(segment);
+            }
+        }
+        return new ArrayList<>(reservations.values());
+    }
+
+    private PriceDTO getPrice(BigDecimal totalPrice, BigDecimal totalTax, BigDecimal basePrice) {
+        if (totalPrice == null && totalTax == null && basePrice == null) {
+            return null;
+        }
+
+        PriceDTO price = new PriceDTO();
+        price.setTotalPrice(totalPrice);
+        price.setTotalTax(totalTax);
+        price.setBasePrice(basePrice);
+        return price;
+    }
+}
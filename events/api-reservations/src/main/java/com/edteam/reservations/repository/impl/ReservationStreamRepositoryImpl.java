@@ -0,0 +1,67 @@
+package com.edteam.reservations.repository.impl;
+
+import com.edteam.reservations.model.Reservation;
+import com.edteam.reservations.repository.ReservationStreamRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.List;
+import java.util.function.Function;
+
+// It is not a fragment of ReservationRepository because Spring Data takes a repository with a reactive method for a
+// reactive repository and the application does not start
+@Repository
+public class ReservationStreamRepositoryImpl implements ReservationStreamRepository {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    private final Scheduler databaseScheduler;
+
+    @Autowired
+    public ReservationStreamRepositoryImpl(EntityManagerFactory entityManagerFactory, Scheduler databaseScheduler) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.databaseScheduler = databaseScheduler;
+    }
+
+    // The rows are read from the cursor only when the subscriber requests them and the entities are mapped and
+    // detached in chunks of the fetch size, so the persistence context does not grow with the size of the result and
+    // the lazy collections of each chunk are loaded in batches instead of one select for each reservation.
+    @Override
+    public <T> Flux<T> stream(Specification<Reservation> specification, Pageable pageable, int fetchSize,
+            Function<Reservation, T> mapper) {
+        return Flux.using(entityManagerFactory::createEntityManager, entityManager -> {
+            CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Reservation> query = criteriaBuilder.createQuery(Reservation.class);
+            Root<Reservation> root = query.from(Reservation.class);
+            Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+
+            return Flux
+                    .fromStream(() -> entityManager.createQuery(query).setFirstResult((int) pageable.getOffset())
+                            .setMaxResults(pageable.getPageSize()).setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                            .setHint(HibernateHints.HINT_READ_ONLY, true)
+                            .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH,
+                                    entityManager.getEntityGraph(Reservation.ITINERARY_GRAPH))
+                            .getResultStream())
+                    .buffer(fetchSize).flatMapIterable(reservations -> {
+                        List<T> results = reservations.stream().map(mapper).toList();
+                        reservations.forEach(entityManager::detach);
+                        return results;
+                    });
+        }, EntityManager::close).subscribeOn(databaseScheduler);
+    }
+}
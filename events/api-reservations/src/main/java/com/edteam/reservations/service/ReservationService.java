@@ -1,141 +1,435 @@
 package com.edteam.reservations.service;
 
+import com.edteam.reservations.configuration.ReservationConfiguration;
 import com.edteam.reservations.connector.CatalogConnector;
-import com.edteam.reservations.connector.response.CityDTO;
 import com.edteam.reservations.dto.*;
 import com.edteam.reservations.enums.APIError;
 import com.edteam.reservations.exception.EdteamException;
 import com.edteam.reservations.messaging.producer.ReservationTransactionProducer;
+import com.edteam.reservations.model.Itinerary;
+import com.edteam.reservations.model.Passenger;
+import com.edteam.reservations.model.Price;
 import com.edteam.reservations.model.Reservation;
+import com.edteam.reservations.model.Segment;
 import com.edteam.reservations.model.Status;
 import com.edteam.reservations.repository.ReservationRepository;
+import com.edteam.reservations.repository.ReservationStreamRepository;
 import com.edteam.reservations.specification.ReservationSpecification;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.validation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
 
 @Service
 public class ReservationService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ReservationService.class);
 
+    private static final int EVICTION_STRIPES = 1024;
+
+    private static final String CURSOR_ALGORITHM = "HmacSHA256";
+
     private ReservationRepository repository;
 
+    private ReservationStreamRepository streamRepository;
+
     private ConversionService conversionService;
 
     private CatalogConnector catalogConnector;
 
+    private ReservationConfiguration configuration;
+
+    private Scheduler databaseScheduler;
+
+    private boolean cacheEnabled;
+
+    private Cache<Long, ReservationDTO> cache;
+
+    // Each eviction increments the counter of the stripe of the id, so a read can tell if the reservation was
+    // evicted while it was loading it
+    private AtomicLongArray evictions = new AtomicLongArray(EVICTION_STRIPES);
+
+    private SecretKey cursorKey;
+
+    private TransactionTemplate transactionTemplate;
+
     private ReservationTransactionProducer producer;
 
+    private Validator validator;
+
     @Autowired
-    public ReservationService(ReservationRepository repository, ConversionService conversionService,
-            CatalogConnector catalogConnector, ReservationTransactionProducer producer) {
+    public ReservationService(ReservationRepository repository, ReservationStreamRepository streamRepository,
+            ConversionService conversionService, CatalogConnector catalogConnector,
+            ReservationTransactionProducer producer, ReservationConfiguration configuration,
+            Scheduler databaseScheduler, TransactionTemplate transactionTemplate, Validator validator,
+            MeterRegistry meterRegistry) {
         this.repository = repository;
+        this.streamRepository = streamRepository;
         this.conversionService = conversionService;
         this.catalogConnector = catalogConnector;
+        this.configuration = configuration;
+        this.databaseScheduler = databaseScheduler;
+        this.transactionTemplate = transactionTemplate;
         this.producer = producer;
+        this.validator = validator;
+
+        // The metadata of the constraints is built at startup instead of in the first validation
+        for (Class<?> type : List.of(Reservation.class, Passenger.class, Itinerary.class, Segment.class, Price.class)) {
+            validator.getConstraintsForClass(type);
+        }
+
+        this.cacheEnabled = configuration.isCacheEnabled();
+        this.cache = Caffeine.newBuilder().maximumSize(configuration.getCacheMaximumSize())
+                .expireAfterWrite(Duration.ofMillis(configuration.getCacheTtl())).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "reservations");
+
+        this.cursorKey = getCursorKey(configuration.getCursorSecret());
     }
 
     public Flux<ReservationDTO> getReservations(SearchReservationCriteriaDTO criteria) {
         Pageable pageable = PageRequest.of(criteria.getPageActual(), criteria.getPageSize());
 
-        List<Reservation> reservations = repository.findAll(ReservationSpecification.withSearchCriteria(criteria),
-                pageable);
+        Flux<ReservationDTO> reservations = configuration.isSearchProjection()
+                ? Mono.fromCallable(() -> repository
+                        .findAllProjected(ReservationSpecification.withSearchCriteria(criteria), pageable))
+                        .subscribeOn(databaseScheduler).flatMapIterable(Function.identity())
+                : streamRepository.stream(ReservationSpecification.withSearchCriteria(criteria), pageable,
+                        configuration.getSearchFetchSize(),
+                        reservation -> conversionService.convert(reservation, ReservationDTO.class));
+
+        // The pacing is optional and applies to each subscriber, the rows are read only when they are requested
+        if (configuration.getSearchRate() > 0) {
+            return reservations.delayElements(Duration.ofMillis(1000 / configuration.getSearchRate()));
+        }
+        return reservations;
+    }
 
-        return Flux.fromIterable(reservations)
-                .mapNotNull(reservation -> conversionService.convert(reservation, ReservationDTO.class))
-                .concatMap(reservation -> Mono.just(conversionService.convert(reservation, ReservationDTO.class))
-                        .delayElement(Duration.ofMillis(1500))); // Retardo de 1500 ms por cada elemento
+    public Mono<ReservationPageDTO> getReservationPage(SearchReservationCriteriaDTO criteria, String token) {
+        return Mono
+                .fromCallable(
+                        () -> ReservationCursorDTO.of(criteria, token, cursorKey))
+                .flatMap(cursor -> streamRepository
+                        .stream(ReservationSpecification.withKeyset(criteria, cursor),
+                                PageRequest.of(0, criteria.getPageSize()), configuration.getSearchFetchSize(),
+                                reservation -> conversionService.convert(reservation, ReservationDTO.class))
+                        .collectList().map(reservations -> toPage(cursor, reservations, criteria.getPageSize())));
     }
 
     public Mono<ReservationDTO> getReservationById(Long id) {
-        Optional<Reservation> result = repository.findById(id);
-        if (result.isEmpty()) {
-            LOGGER.debug("Not exist reservation with the id {}", id);
-            throw new EdteamException(APIError.RESERVATION_NOT_FOUND);
-        }
-        return Mono.justOrEmpty(conversionService.convert(result.get(), ReservationDTO.class));
+        return Mono.defer(() -> {
+            ReservationDTO cached = cacheEnabled ? cache.getIfPresent(id) : null;
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+
+            long generation = evictions.get(getStripe(id));
+            return Mono.fromCallable(() -> findReservation(id)).subscribeOn(databaseScheduler)
+                    .doOnNext(reservation -> cacheLoadedReservation(reservation, generation));
+        });
+    }
+
+    // The version is taken from the cache or read alone, without loading the relations of the reservation
+    public Mono<Long> getVersion(Long id) {
+        return Mono.defer(() -> Mono.justOrEmpty(cacheEnabled ? cache.getIfPresent(id) : null))
+                .mapNotNull(ReservationDTO::getVersion)
+                .switchIfEmpty(Mono.fromCallable(() -> repository.findVersionById(id).orElseThrow(() -> {
+                    LOGGER.debug("Not exist reservation with the id {}", id);
+                    return new EdteamException(APIError.RESERVATION_NOT_FOUND);
+                })).subscribeOn(databaseScheduler));
     }
 
     public Mono<ReservationDTO> save(ReservationDTO reservation) {
         if (Objects.nonNull(reservation.getId())) {
-            throw new EdteamException(APIError.RESERVATION_WITH_SAME_ID);
+            return Mono.error(new EdteamException(APIError.RESERVATION_WITH_SAME_ID));
         }
-        checkCity(reservation);
 
-        Reservation transformed = conversionService.convert(reservation, Reservation.class);
-        validateEntity(transformed);
+        return checkCity(reservation).then(Mono.fromCallable(() -> persist(reservation)).subscribeOn(databaseScheduler))
+                .doOnNext(this::cacheReservation);
+    }
+
+    // The cities of all the reservations are validated with one lookup and the valid reservations are saved in
+    // chunks, each chunk in one transaction so the inserts are sent in JDBC batches
+    public Flux<ReservationResultDTO> saveAll(List<ReservationDTO> reservations) {
+        Set<String> codes = new HashSet<>();
+        reservations.stream().filter(this::hasCodes).forEach(reservation -> codes.addAll(getCodes(reservation)));
 
-        Reservation result = repository.save(Objects.requireNonNull(transformed));
-        return Mono.justOrEmpty(conversionService.convert(result, ReservationDTO.class));
+        return catalogConnector.getCities(codes)
+                .timeout(Duration.ofMillis(configuration.getCatalogTimeout()),
+                        Mono.error(() -> new EdteamException(APIError.CATALOG_UNAVAILABLE)))
+                .flatMapMany(
+                        cities -> Flux.range(0, reservations.size()).buffer(configuration.getBulkChunkSize())
+                                .concatMap(indexes -> Mono
+                                        .fromCallable(() -> persistAll(reservations, indexes, cities.keySet()))
+                                        .subscribeOn(databaseScheduler)))
+                .flatMapIterable(results -> results);
     }
 
     public Mono<ReservationDTO> update(Long id, ReservationDTO reservation) {
-        if (!repository.existsById(id)) {
-            LOGGER.debug("Not exist reservation with the id {}", id);
-            throw new EdteamException(APIError.RESERVATION_NOT_FOUND);
+        reservation.setId(id);
+
+        // In the optimistic mode the existence is not checked before saving, the version is checked by the update
+        // and only when it fails another query tells if the reservation was modified or deleted
+        Mono<Void> check;
+        if (configuration.isOptimistic()) {
+            check = Objects.isNull(reservation.getVersion())
+                    ? Mono.error(new EdteamException(APIError.VALIDATION_ERROR)) : Mono.empty();
+        } else {
+            check = checkExists(id);
         }
-        checkCity(reservation);
 
-        Reservation transformed = conversionService.convert(reservation, Reservation.class);
-        validateEntity(transformed);
-        Reservation result = repository.save(Objects.requireNonNull(transformed));
+        return check.then(checkCity(reservation))
+                .then(Mono.fromCallable(() -> persist(reservation)).subscribeOn(databaseScheduler))
+                .onErrorResume(OptimisticLockingFailureException.class, e -> conflictOrNotFound(id))
+                .doOnNext(this::cacheReservation).doOnError(e -> evictReservation(id));
+    }
+
+    public Mono<Void> delete(Long id, Long version) {
+        if (configuration.isOptimistic()) {
+            if (Objects.isNull(version)) {
+                return Mono.error(new EdteamException(APIError.VALIDATION_ERROR));
+            }
+            return Mono.<Void> fromRunnable(() -> remove(id, version)).subscribeOn(databaseScheduler)
+                    .onErrorResume(OptimisticLockingFailureException.class, e -> conflictOrNotFound(id))
+                    .doFinally(signal -> evictReservation(id));
+        }
 
-        return Mono.justOrEmpty(conversionService.convert(result, ReservationDTO.class));
+        return checkExists(id)
+                .then(Mono.<Void> fromRunnable(() -> repository.deleteById(id)).subscribeOn(databaseScheduler))
+                .doFinally(signal -> evictReservation(id));
     }
 
-    public Mono<Void> delete(Long id) {
-        if (!repository.existsById(id)) {
-            LOGGER.debug("Not exist reservation with the id {}", id);
-            throw new EdteamException(APIError.RESERVATION_NOT_FOUND);
+    public void changeStatus(Long id, Status status) {
+        if (repository.updateStatusById(id, status, status.getPredecessors()) == 0) {
+            // A redelivered event finds the reservation already in that status, so it is ignored instead of failing
+            // and being retried, only when the update does not change anything the current status is read
+            Status current = repository.findStatusById(id).orElseThrow(() -> {
+                LOGGER.debug("Not exist reservation with the id {}", id);
+                return new EdteamException(APIError.RESERVATION_NOT_FOUND);
+            });
+            if (current == status) {
+                LOGGER.debug("The reservation with the id {} already has the status {}", id, status);
+                return;
+            }
+            LOGGER.debug("The reservation with the id {} can not change from {} to {}", id, current, status);
+            throw new EdteamException(APIError.INVALID_STATUS_TRANSITION);
         }
+        evictReservation(id);
 
-        repository.deleteById(id);
+        ReservationTransactionDTO reservationTransaction = new ReservationTransactionDTO(id,
+                conversionService.convert(status, StatusDTO.class));
+        producer.sendMessage(reservationTransaction);
+    }
 
-        return Mono.empty();
+    // A short page is the last one, otherwise the next page starts after its last reservation
+    private ReservationPageDTO toPage(ReservationCursorDTO cursor, List<ReservationDTO> reservations, int pageSize) {
+        String next = reservations.size() < pageSize ? null
+                : cursor.next(reservations.get(reservations.size() - 1)).encode(cursorKey);
+        return new ReservationPageDTO(reservations, next);
     }
 
-    public void changeStatus(Long id, Status status) {
-        Optional<Reservation> reservation = repository.findById(id);
-        if (reservation.isEmpty()) {
+    private ReservationDTO findReservation(Long id) {
+        // The entity is converted inside the transaction because the relations are loaded lazily
+        ReservationDTO result = transactionTemplate.execute(status -> repository.findById(id)
+                .map(reservation -> conversionService.convert(reservation, ReservationDTO.class)).orElse(null));
+        if (result == null) {
             LOGGER.debug("Not exist reservation with the id {}", id);
             throw new EdteamException(APIError.RESERVATION_NOT_FOUND);
         }
+        return result;
+    }
 
-        repository.updateStatusById(id, status);
+    // The copy with the highest version is kept, so a read or a write that finishes late does not replace a newer one
+    private void cacheReservation(ReservationDTO reservation) {
+        if (cacheEnabled && reservation.getId() != null) {
+            cache.asMap().merge(reservation.getId(), reservation,
+                    (cached, loaded) -> loaded.getVersion() >= cached.getVersion() ? loaded : cached);
+        }
+    }
 
-        ReservationTransactionDTO reservationTransaction = new ReservationTransactionDTO(id,
-                conversionService.convert(status, StatusDTO.class));
-        producer.sendMessage(reservationTransaction);
+    // A read that finishes after an eviction of the same id can hold the copy before the write, so it is not cached
+    // and the next read loads the reservation again. The check runs inside the compute, where the eviction waits.
+    private void cacheLoadedReservation(ReservationDTO reservation, long generation) {
+        if (cacheEnabled) {
+            cache.asMap().compute(reservation.getId(),
+                    (key, cached) -> evictions.get(getStripe(key)) != generation ? cached
+                            : cached == null || reservation.getVersion() >= cached.getVersion() ? reservation : cached);
+        }
     }
 
-    private void checkCity(ReservationDTO reservationDTO) {
+    private static SecretKey getCursorKey(String secret) {
+        if (secret != null) {
+            return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), CURSOR_ALGORITHM);
+        }
+
+        try {
+            return KeyGenerator.getInstance(CURSOR_ALGORITHM).generateKey();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The key of the cursors can not be generated", e);
+        }
+    }
+
+    private int getStripe(Long id) {
+        return Math.floorMod(id.hashCode(), EVICTION_STRIPES);
+    }
+
+    private void evictReservation(Long id) {
+        if (cacheEnabled) {
+            evictions.incrementAndGet(getStripe(id));
+            cache.invalidate(id);
+        }
+    }
+
+    private Mono<Void> checkExists(Long id) {
+        return Mono.fromCallable(() -> repository.existsById(id)).subscribeOn(databaseScheduler).flatMap(exists -> {
+            if (!exists) {
+                LOGGER.debug("Not exist reservation with the id {}", id);
+                return Mono.error(new EdteamException(APIError.RESERVATION_NOT_FOUND));
+            }
+            return Mono.empty();
+        });
+    }
+
+    private <T> Mono<T> conflictOrNotFound(Long id) {
+        return Mono.fromCallable(() -> repository.existsById(id)).subscribeOn(databaseScheduler).flatMap(exists -> {
+            LOGGER.debug("The reservation with the id {} was modified or deleted", id);
+            return Mono.error(
+                    new EdteamException(exists ? APIError.RESERVATION_CONFLICT : APIError.RESERVATION_NOT_FOUND));
+        });
+    }
+
+    private Mono<Void> checkCity(ReservationDTO reservationDTO) {
+        Set<String> codes = getCodes(reservationDTO);
+
+        return catalogConnector.containsCities(codes).filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.error(() -> new EdteamException(APIError.VALIDATION_ERROR))).then()
+                .timeout(Duration.ofMillis(configuration.getCatalogTimeout()),
+                        Mono.error(() -> new EdteamException(APIError.CATALOG_UNAVAILABLE)));
+    }
+
+    // The reservation is loaded and removed instead of deleted with one statement, so the passengers, the itinerary,
+    // the segments and the price are removed with it and the delete still checks the version
+    private void remove(Long id, Long version) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Reservation reservation = repository.findById(id).orElseThrow(() -> {
+                LOGGER.debug("Not exist reservation with the id {}", id);
+                return new EdteamException(APIError.RESERVATION_NOT_FOUND);
+            });
+            if (!version.equals(reservation.getVersion())) {
+                LOGGER.debug("The reservation with the id {} was modified", id);
+                throw new EdteamException(APIError.RESERVATION_CONFLICT);
+            }
+            repository.delete(reservation);
+            repository.flush();
+        });
+    }
+
+    private ReservationDTO persist(ReservationDTO reservation) {
+        Reservation transformed = conversionService.convert(reservation, Reservation.class);
+        validateEntity(transformed);
+
+        // The entity is converted inside the transaction because the relations are loaded lazily, and after the
+        // flush because it is the one that increments the version
+        return transactionTemplate.execute(status -> conversionService
+                .convert(repository.saveAndFlush(Objects.requireNonNull(transformed)), ReservationDTO.class));
+    }
+
+    // An item of the bulk import is not validated by the controller, so it can come without an itinerary, segments
+    // or cities and it fails alone instead of the whole request
+    private boolean hasCodes(ReservationDTO reservationDTO) {
+        return Objects.nonNull(reservationDTO) && Objects.nonNull(reservationDTO.getItinerary())
+                && Objects.nonNull(reservationDTO.getItinerary().getSegment())
+                && reservationDTO.getItinerary().getSegment().stream().allMatch(segment -> Objects.nonNull(segment)
+                        && Objects.nonNull(segment.getOrigin()) && Objects.nonNull(segment.getDestination()));
+    }
+
+    private Set<String> getCodes(ReservationDTO reservationDTO) {
+        Set<String> codes = new HashSet<>();
         for (SegmentDTO segmentDTO : reservationDTO.getItinerary().getSegment()) {
-            Mono<CityDTO> origin = catalogConnector.getCity(segmentDTO.getOrigin());
-            Mono<CityDTO> destination = catalogConnector.getCity(segmentDTO.getDestination());
+            codes.add(segmentDTO.getOrigin());
+            codes.add(segmentDTO.getDestination());
+        }
+        return codes;
+    }
+
+    private List<ReservationResultDTO> persistAll(List<ReservationDTO> reservations, List<Integer> indexes,
+            Set<String> cities) {
+        List<ReservationResultDTO> results = new ArrayList<>();
+        Map<Integer, Reservation> valid = new LinkedHashMap<>();
 
-            if (origin.block() == null || destination.block() == null) {
-                throw new EdteamException(APIError.VALIDATION_ERROR);
+        for (Integer index : indexes) {
+            ReservationDTO reservation = reservations.get(index);
+            if (!hasCodes(reservation)) {
+                results.add(failed(index, APIError.VALIDATION_ERROR,
+                        List.of("itinerary - must have segments with origin and destination")));
+            } else if (Objects.nonNull(reservation.getId())) {
+                results.add(failed(index, APIError.RESERVATION_WITH_SAME_ID, List.of()));
+            } else if (!cities.containsAll(getCodes(reservation))) {
+                results.add(failed(index, APIError.VALIDATION_ERROR, List.of()));
+            } else {
+                Reservation transformed = conversionService.convert(reservation, Reservation.class);
+                Set<ConstraintViolation<Reservation>> violations = validator.validate(transformed);
+                if (violations.isEmpty()) {
+                    valid.put(index, transformed);
+                } else {
+                    results.add(failed(index, APIError.VALIDATION_ERROR,
+                            violations.stream()
+                                    .map(error -> String.format("%s - %s", error.getPropertyPath(), error.getMessage()))
+                                    .toList()));
+                }
             }
         }
+
+        try {
+            repository.saveAll(valid.values());
+            valid.forEach((index, reservation) -> results.add(new ReservationResultDTO(index, reservation.getId(),
+                    HttpStatus.CREATED.value(), HttpStatus.CREATED.getReasonPhrase(), List.of())));
+        } catch (DataAccessException e) {
+            LOGGER.error("Error saving the reservations {}", valid.keySet(), e);
+            valid.keySet().forEach(index -> results.add(new ReservationResultDTO(index, null,
+                    HttpStatus.INTERNAL_SERVER_ERROR.value(), e.getMostSpecificCause().getMessage(), List.of())));
+        }
+
+        results.sort(Comparator.comparingInt(ReservationResultDTO::getIndex));
+        return results;
+    }
+
+    private ReservationResultDTO failed(int index, APIError error, List<String> reasons) {
+        return new ReservationResultDTO(index, null, error.getHttpStatus().value(), error.getMessage(), reasons);
     }
 
     private void validateEntity(Reservation transformed) {
-        ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-        Validator validator = factory.getValidator();
         Set<ConstraintViolation<Reservation>> violations = validator.validate(transformed);
         if (!violations.isEmpty()) {
             throw new ConstraintViolationException(violations);
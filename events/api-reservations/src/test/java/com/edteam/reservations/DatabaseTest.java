@@ -0,0 +1,78 @@
+package com.edteam.reservations;
+
+import ch.vorburger.mariadb4j.DB;
+import ch.vorburger.mariadb4j.DBConfigurationBuilder;
+import com.edteam.reservations.configuration.SchedulerConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Runs the migrations on an embedded MariaDB, started once for all the tests, and counts the statements that Hibernate
+// prepares so the tests fail when a change adds queries. The tests are not wrapped in a transaction, each statement
+// reaches the database like in the application. The dialect is fixed because the driver asks MariaDB for the reserved
+// words with a query of MySQL 8.
+@DataJpaTest(showSql = false, properties = { "spring.flyway.enabled=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn",
+        "spring.jpa.database-platform=org.hibernate.dialect.MySQLDialect",
+        "spring.jpa.properties.hibernate.temp.use_jdbc_metadata_defaults=false" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({ SchedulerConfiguration.class, SimpleMeterRegistry.class })
+public abstract class DatabaseTest {
+
+    private static final String DATABASE = "flights_reservation";
+
+    private static DBConfigurationBuilder configuration;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) throws Exception {
+        start();
+        registry.add("spring.datasource.url", () -> "jdbc:mysql://localhost:" + configuration.getPort() + "/" + DATABASE
+                + "?useCursorFetch=true&rewriteBatchedStatements=true");
+        registry.add("spring.datasource.username", () -> "root");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    private static synchronized void start() throws Exception {
+        if (configuration != null) {
+            return;
+        }
+
+        DBConfigurationBuilder builder = DBConfigurationBuilder.newBuilder();
+        builder.setPort(0);
+        // mariadbd refuses to start as root unless it is asked explicitly, as it happens in the containers of the CI
+        if ("root".equals(System.getProperty("user.name"))) {
+            builder.addArg("--user=root");
+        }
+
+        DB db = DB.newEmbeddedDB(builder.build());
+        db.start();
+        db.createDB(DATABASE);
+        configuration = builder;
+    }
+
+    protected Statistics getStatistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // The statements prepared by the operation, the statements of a JDBC batch count once
+    protected long countStatements(Runnable operation) {
+        Statistics statistics = getStatistics();
+        statistics.clear();
+        operation.run();
+        return statistics.getPrepareStatementCount();
+    }
+}
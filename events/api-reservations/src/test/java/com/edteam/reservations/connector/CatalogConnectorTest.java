@@ -0,0 +1,133 @@
+package com.edteam.reservations.connector;
+
+import com.edteam.reservations.connector.configuration.EndpointConfiguration;
+import com.edteam.reservations.connector.configuration.HostConfiguration;
+import com.edteam.reservations.connector.configuration.HttpConnectorConfiguration;
+import com.edteam.reservations.connector.response.CityDTO;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CatalogConnectorTest {
+
+    private static final Set<String> CITIES = Set.of("BUE", "MIA", "MAD");
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private long delay;
+
+    private HttpServer server;
+
+    private WebClientRegistry registry;
+
+    private CatalogConnector connector;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/api/flights/catalog/city/", this::getCity);
+        server.start();
+
+        HttpConnectorConfiguration configuration = getConfiguration(server.getAddress().getPort());
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LatencyRegistry latency = new LatencyRegistry(configuration, meterRegistry);
+        ResilienceRegistry resilience = new ResilienceRegistry(configuration, meterRegistry);
+        registry = new WebClientRegistry(configuration, new TimeoutRegistry(configuration, latency));
+        connector = new CatalogConnector(registry,
+                new CityIndexLoader(registry, resilience, configuration, meterRegistry), resilience, latency,
+                new HedgingRegistry(configuration, latency, meterRegistry), configuration, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void concurrentLookupsOfTheSameCodeCallTheCatalogOnce() {
+        delay = 200;
+
+        List<CityDTO> cities = Flux.range(0, 20).parallel().runOn(Schedulers.parallel())
+                .flatMap(i -> connector.getCity("BUE")).sequential().collectList().block();
+
+        assertThat(cities).hasSize(20).extracting(CityDTO::getCode).containsOnly("BUE");
+        assertThat(requests).hasValue(1);
+    }
+
+    @Test
+    void getCitiesResolvesEveryCodeOfAMixedBatch() {
+        Map<String, CityDTO> cities = connector.getCities(Set.of("BUE", "XXX", "MIA", "YYY", "MAD")).block();
+
+        assertThat(cities).containsOnlyKeys("BUE", "MIA", "MAD");
+        assertThat(requests).hasValue(5);
+    }
+
+    @Test
+    void containsCitiesAnswersIfAllTheCodesExist() {
+        assertThat(connector.containsCities(Set.of("BUE", "MIA")).block()).isTrue();
+        assertThat(connector.containsCities(Set.of("BUE", "XXX")).block()).isFalse();
+    }
+
+    private void getCity(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String path = exchange.getRequestURI().getPath();
+        String code = path.substring(path.lastIndexOf('/') + 1);
+
+        if (!CITIES.contains(code)) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] body = String.format("{\"code\":\"%s\",\"name\":\"%s\",\"timeZone\":\"UTC\"}", code, code)
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream response = exchange.getResponseBody()) {
+            response.write(body);
+        }
+    }
+
+    // Only get-city is configured, so the batch lookups fall back to one call per code and the index is disabled
+    private HttpConnectorConfiguration getConfiguration(int port) {
+        EndpointConfiguration endpoint = new EndpointConfiguration();
+        endpoint.setUrl("/api/flights/catalog/city/{code}");
+        endpoint.setReadTimeout(1000);
+        endpoint.setWriteTimeout(1000);
+        endpoint.setConnectionTimeout(1000);
+
+        HostConfiguration host = new HostConfiguration();
+        host.setHost("localhost");
+        host.setPort(port);
+        host.getIndex().setEnabled(false);
+        host.setEndpoints(new HashMap<>(Map.of("get-city", endpoint)));
+
+        HttpConnectorConfiguration configuration = new HttpConnectorConfiguration();
+        configuration.setHosts(new HashMap<>(Map.of("api-catalog", host)));
+        return configuration;
+    }
+}
@@ -0,0 +1,87 @@
+package com.edteam.reservations.dto;
+
+import com.edteam.reservations.enums.APIError;
+import com.edteam.reservations.exception.EdteamException;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReservationCursorDTOTest {
+
+    private final SecretKey key = new SecretKeySpec("secret".getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+
+    @Test
+    void cursorOfThePreviousPageIsAccepted() {
+        String token = getToken(getCriteria("Juan"));
+
+        ReservationCursorDTO cursor = ReservationCursorDTO.of(getCriteria("Juan"), token, key);
+
+        assertThat(cursor.getSortField()).isEqualTo("creationDate");
+        assertThat(cursor.getSortingDirection()).isEqualTo("desc");
+        assertThat(cursor.getDateValue()).isEqualTo(LocalDate.of(2023, 12, 31));
+        assertThat(cursor.getId()).isEqualTo(7L);
+    }
+
+    @Test
+    void tamperedCursorIsRejected() {
+        String token = getToken(getCriteria("Juan"));
+        String[] signed = token.split("\\.");
+        String tampered = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("creationDate,desc,2023-12-31,1".getBytes(StandardCharsets.UTF_8)) + "." + signed[1];
+
+        assertInvalid(() -> ReservationCursorDTO.of(getCriteria("Juan"), tampered, key));
+        assertInvalid(() -> ReservationCursorDTO.of(getCriteria("Juan"), signed[0], key));
+    }
+
+    @Test
+    void cursorReusedWithOtherFiltersIsRejected() {
+        String token = getToken(getCriteria("Juan"));
+
+        assertInvalid(() -> ReservationCursorDTO.of(getCriteria("Pedro"), token, key));
+        assertInvalid(() -> ReservationCursorDTO.of(getCriteria(null), token, key));
+    }
+
+    @Test
+    void cursorReusedWithAnotherSortIsRejected() {
+        String token = getToken(getCriteria("Juan"));
+        SearchReservationCriteriaDTO criteria = getCriteria("Juan");
+        criteria.setSortingDirection("asc");
+
+        assertInvalid(() -> ReservationCursorDTO.of(criteria, token, key));
+    }
+
+    @Test
+    void cursorSignedWithAnotherKeyIsRejected() {
+        String token = getToken(getCriteria("Juan"));
+        SecretKey other = new SecretKeySpec("other".getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+
+        assertInvalid(() -> ReservationCursorDTO.of(getCriteria("Juan"), token, other));
+    }
+
+    private String getToken(SearchReservationCriteriaDTO criteria) {
+        ReservationDTO last = new ReservationDTO();
+        last.setId(7L);
+        last.setCreationDate(LocalDate.of(2023, 12, 31));
+        return ReservationCursorDTO.of(criteria, null, key).next(last).encode(key);
+    }
+
+    private SearchReservationCriteriaDTO getCriteria(String firstName) {
+        SearchReservationCriteriaDTO criteria = new SearchReservationCriteriaDTO();
+        criteria.setFirstName(firstName);
+        criteria.setSortField("creationDate");
+        criteria.setSortingDirection("desc");
+        return criteria;
+    }
+
+    private void assertInvalid(Runnable decode) {
+        assertThatThrownBy(decode::run).isInstanceOf(EdteamException.class).hasFieldOrPropertyWithValue("status",
+                APIError.INVALID_CURSOR.getHttpStatus());
+    }
+}
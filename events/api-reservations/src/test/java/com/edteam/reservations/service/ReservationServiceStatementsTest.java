@@ -0,0 +1,224 @@
+package com.edteam.reservations.service;
+
+import com.edteam.reservations.DatabaseTest;
+import com.edteam.reservations.configuration.ReservationConfiguration;
+import com.edteam.reservations.connector.CatalogConnector;
+import com.edteam.reservations.connector.response.CityDTO;
+import com.edteam.reservations.dto.ItineraryDTO;
+import com.edteam.reservations.dto.PassengerDTO;
+import com.edteam.reservations.dto.PriceDTO;
+import com.edteam.reservations.dto.ReservationDTO;
+import com.edteam.reservations.dto.ReservationPageDTO;
+import com.edteam.reservations.dto.ReservationResultDTO;
+import com.edteam.reservations.dto.SearchReservationCriteriaDTO;
+import com.edteam.reservations.dto.SegmentDTO;
+import com.edteam.reservations.enums.APIError;
+import com.edteam.reservations.exception.EdteamException;
+import com.edteam.reservations.mapper.ReservationDTOMapperImpl;
+import com.edteam.reservations.mapper.ReservationMapperImpl;
+import com.edteam.reservations.messaging.producer.ReservationTransactionProducer;
+import com.edteam.reservations.repository.ReservationRepository;
+import com.edteam.reservations.repository.impl.ReservationStreamRepositoryImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReservationServiceStatementsTest extends DatabaseTest {
+
+    @Autowired
+    private ReservationRepository repository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private ReservationConfiguration configuration;
+
+    private ReservationService service;
+
+    @BeforeEach
+    void setUp() {
+        DefaultConversionService conversionService = new DefaultConversionService();
+        conversionService.addConverter(new ReservationMapperImpl());
+        conversionService.addConverter(new ReservationDTOMapperImpl());
+
+        CatalogConnector catalogConnector = mock(CatalogConnector.class);
+        when(catalogConnector.containsCities(anySet())).thenReturn(Mono.just(true));
+        when(catalogConnector.getCities(anySet()))
+                .thenReturn(Mono.just(Map.of("BUE", new CityDTO(), "MIA", new CityDTO())));
+
+        configuration = new ReservationConfiguration();
+        configuration.setCacheEnabled(false);
+        service = new ReservationService(repository,
+                new ReservationStreamRepositoryImpl(entityManagerFactory, Schedulers.immediate()), conversionService,
+                catalogConnector, mock(ReservationTransactionProducer.class), configuration, Schedulers.immediate(),
+                new TransactionTemplate(transactionManager), Validation.buildDefaultValidatorFactory().getValidator(),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    void optimisticUpdateSkipsTheExistenceCheck() {
+        ReservationDTO saved = service.save(getReservation()).block();
+        long pessimistic = countStatements(() -> service.update(saved.getId(), saved).block());
+
+        ReservationDTO updated = service.getReservationById(saved.getId()).block();
+        configuration.setOptimistic(true);
+        long optimistic = countStatements(() -> service.update(updated.getId(), updated).block());
+
+        assertThat(pessimistic).isEqualTo(12);
+        assertThat(optimistic).isEqualTo(11);
+    }
+
+    @Test
+    void optimisticUpdateWithStaleVersionAnswersConflict() {
+        configuration.setOptimistic(true);
+        ReservationDTO saved = service.save(getReservation()).block();
+        service.update(saved.getId(), saved).block();
+
+        assertThatThrownBy(() -> service.update(saved.getId(), saved).block()).isInstanceOf(EdteamException.class)
+                .hasFieldOrPropertyWithValue("status", APIError.RESERVATION_CONFLICT.getHttpStatus());
+    }
+
+    // The default mode checks the existence and deleteById loads each relation with its own select, the optimistic
+    // mode loads the reservation with the fetch plan. Both delete each row with its id and its version.
+    @Test
+    void optimisticDeleteSkipsTheExistenceCheck() {
+        ReservationDTO first = service.save(getReservation()).block();
+        ReservationDTO second = service.save(getReservation()).block();
+
+        long pessimistic = countStatements(() -> service.delete(first.getId(), null).block());
+        configuration.setOptimistic(true);
+        long optimistic = countStatements(() -> service.delete(second.getId(), second.getVersion()).block());
+
+        assertThat(pessimistic).isEqualTo(13);
+        assertThat(optimistic).isEqualTo(10);
+        assertThat(repository.existsById(second.getId())).isFalse();
+    }
+
+    @Test
+    void optimisticDeleteWithStaleVersionAnswersConflict() {
+        configuration.setOptimistic(true);
+        ReservationDTO saved = service.save(getReservation()).block();
+
+        assertThatThrownBy(() -> service.delete(saved.getId(), saved.getVersion() + 1).block())
+                .isInstanceOf(EdteamException.class)
+                .hasFieldOrPropertyWithValue("status", APIError.RESERVATION_CONFLICT.getHttpStatus());
+        assertThat(repository.existsById(saved.getId())).isTrue();
+    }
+
+    // The page is loaded with the reservations joined to the itinerary and the price and one batch for the
+    // passengers and another for the segments, whatever the size of the page
+    @Test
+    void searchLoadsThePageWithAFixedNumberOfStatements() {
+        service.saveAll(Stream.generate(this::getReservation).limit(10).toList()).blockLast();
+
+        long small = countStatements(() -> service.getReservations(getCriteria(2)).blockLast());
+        long large = countStatements(() -> service.getReservations(getCriteria(10)).blockLast());
+
+        assertThat(small).isEqualTo(large).isEqualTo(3);
+    }
+
+    @Test
+    void searchWithProjectionLoadsThePageWithAFixedNumberOfStatements() {
+        configuration.setSearchProjection(true);
+        service.saveAll(Stream.generate(this::getReservation).limit(10).toList()).blockLast();
+
+        long small = countStatements(() -> service.getReservations(getCriteria(2)).blockLast());
+        long large = countStatements(() -> service.getReservations(getCriteria(10)).blockLast());
+
+        assertThat(small).isEqualTo(large).isEqualTo(3);
+    }
+
+    @Test
+    void pageOfTheCursorIsLoadedWithAFixedNumberOfStatements() {
+        service.saveAll(Stream.generate(this::getReservation).limit(10).toList()).blockLast();
+        SearchReservationCriteriaDTO criteria = getCriteria(4);
+        ReservationPageDTO first = service.getReservationPage(criteria, null).block();
+
+        long statements = countStatements(() -> service.getReservationPage(criteria, first.getNext()).block());
+
+        assertThat(statements).isEqualTo(3);
+    }
+
+    @Test
+    void reservationIsLoadedByTheIdWithAFixedNumberOfStatements() {
+        ReservationDTO saved = service.save(getReservation()).block();
+
+        long statements = countStatements(() -> service.getReservationById(saved.getId()).block());
+
+        assertThat(statements).isEqualTo(3);
+    }
+
+    // Each table is written with one batch, so the statements do not grow with the reservations of the chunk
+    @Test
+    void saveAllWritesTheChunkInBatches() {
+        long small = countStatements(
+                () -> service.saveAll(Stream.generate(this::getReservation).limit(2).toList()).blockLast());
+        List<ReservationResultDTO> results = service.saveAll(Stream.generate(this::getReservation).limit(20).toList())
+                .collectList().block();
+        long large = countStatements(
+                () -> service.saveAll(Stream.generate(this::getReservation).limit(20).toList()).blockLast());
+
+        assertThat(results).hasSize(20).allMatch(result -> result.getId() != null);
+        assertThat(small).isEqualTo(large).isEqualTo(7);
+    }
+
+    private SearchReservationCriteriaDTO getCriteria(int pageSize) {
+        SearchReservationCriteriaDTO criteria = new SearchReservationCriteriaDTO();
+        criteria.setLastName("Sacco");
+        criteria.setPageSize(pageSize);
+        return criteria;
+    }
+
+    private ReservationDTO getReservation() {
+        PassengerDTO passenger = new PassengerDTO();
+        passenger.setFirstName("Andres");
+        passenger.setLastName("Sacco");
+        passenger.setDocumentNumber("AB554713");
+        passenger.setDocumentType("PASSPORT");
+        passenger.setBirthday(LocalDate.of(1985, 1, 1));
+
+        SegmentDTO segment = new SegmentDTO();
+        segment.setOrigin("BUE");
+        segment.setDestination("MIA");
+        segment.setDeparture("2023-12-31");
+        segment.setArrival("2024-01-01");
+        segment.setCarrier("AA");
+
+        PriceDTO price = new PriceDTO();
+        price.setBasePrice(BigDecimal.valueOf(20));
+        price.setTotalTax(BigDecimal.valueOf(10));
+        price.setTotalPrice(BigDecimal.valueOf(30));
+
+        ItineraryDTO itinerary = new ItineraryDTO();
+        itinerary.setSegment(List.of(segment));
+        itinerary.setPrice(price);
+
+        ReservationDTO reservation = new ReservationDTO();
+        reservation.setPassengers(List.of(passenger));
+        reservation.setItinerary(itinerary);
+        return reservation;
+    }
+}
@@ -0,0 +1,246 @@
+package com.edteam.reservations.service;
+
+import com.edteam.reservations.configuration.ReservationConfiguration;
+import com.edteam.reservations.connector.CatalogConnector;
+import com.edteam.reservations.connector.response.CityDTO;
+import com.edteam.reservations.dto.ItineraryDTO;
+import com.edteam.reservations.dto.ReservationDTO;
+import com.edteam.reservations.dto.ReservationResultDTO;
+import com.edteam.reservations.dto.SegmentDTO;
+import com.edteam.reservations.dto.StatusDTO;
+import com.edteam.reservations.enums.APIError;
+import com.edteam.reservations.exception.EdteamException;
+import com.edteam.reservations.messaging.producer.ReservationTransactionProducer;
+import com.edteam.reservations.model.Reservation;
+import com.edteam.reservations.model.Status;
+import com.edteam.reservations.repository.ReservationRepository;
+import com.edteam.reservations.repository.ReservationStreamRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReservationServiceTest {
+
+    @Mock
+    private ReservationRepository repository;
+
+    @Mock
+    private ReservationStreamRepository streamRepository;
+
+    @Mock
+    private ConversionService conversionService;
+
+    @Mock
+    private CatalogConnector catalogConnector;
+
+    @Mock
+    private ReservationTransactionProducer producer;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private Validator validator;
+
+    @Captor
+    private ArgumentCaptor<Iterable<Reservation>> saved;
+
+    private ReservationService service;
+
+    @BeforeEach
+    void setUp() {
+        ReservationConfiguration configuration = new ReservationConfiguration();
+        configuration.setOptimistic(true);
+
+        lenient().when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>> getArgument(0).doInTransaction(null));
+        lenient().doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>> getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        service = new ReservationService(repository, streamRepository, conversionService, catalogConnector, producer,
+                configuration, Schedulers.immediate(), transactionTemplate, validator, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void updateInOptimisticModeOnlySavesTheReservation() {
+        ReservationDTO reservation = getReservation(1L);
+        Reservation entity = new Reservation();
+        ReservationDTO saved = getReservation(2L);
+        saved.setId(1L);
+        when(catalogConnector.containsCities(anySet())).thenReturn(Mono.just(true));
+        when(conversionService.convert(reservation, Reservation.class)).thenReturn(entity);
+        when(repository.saveAndFlush(entity)).thenReturn(entity);
+        when(conversionService.convert(entity, ReservationDTO.class)).thenReturn(saved);
+
+        ReservationDTO result = service.update(1L, reservation).block();
+
+        assertThat(reservation.getId()).isEqualTo(1L);
+        assertThat(result).isNotNull();
+        assertThat(result.getVersion()).isEqualTo(2L);
+        verify(repository).saveAndFlush(entity);
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void updateInOptimisticModeWithStaleVersionAnswersConflict() {
+        ReservationDTO reservation = getReservation(1L);
+        Reservation entity = new Reservation();
+        when(catalogConnector.containsCities(anySet())).thenReturn(Mono.just(true));
+        when(conversionService.convert(reservation, Reservation.class)).thenReturn(entity);
+        when(repository.saveAndFlush(entity))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Reservation.class, 1L));
+        when(repository.existsById(1L)).thenReturn(true);
+
+        assertThatThrownBy(() -> service.update(1L, reservation).block()).isInstanceOf(EdteamException.class)
+                .hasFieldOrPropertyWithValue("status", APIError.RESERVATION_CONFLICT.getHttpStatus());
+        verify(repository).saveAndFlush(entity);
+        verify(repository).existsById(1L);
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void deleteInOptimisticModeWithStaleVersionAnswersConflict() {
+        Reservation entity = new Reservation();
+        entity.setId(1L);
+        entity.setVersion(2L);
+        when(repository.findById(1L)).thenReturn(Optional.of(entity));
+
+        assertThatThrownBy(() -> service.delete(1L, 1L).block()).isInstanceOf(EdteamException.class)
+                .hasFieldOrPropertyWithValue("status", APIError.RESERVATION_CONFLICT.getHttpStatus());
+        verify(repository, never()).delete(any());
+    }
+
+    @Test
+    void deleteInOptimisticModeRequiresTheVersion() {
+        assertThatThrownBy(() -> service.delete(1L, null).block()).isInstanceOf(EdteamException.class)
+                .hasFieldOrPropertyWithValue("status", APIError.VALIDATION_ERROR.getHttpStatus());
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void saveAllFailsOnlyTheItemsWithUnknownCities() {
+        ReservationDTO valid = getReservation(null);
+        ReservationDTO invalid = getReservation(null);
+        invalid.getItinerary().getSegment().get(0).setDestination("XXX");
+        Reservation entity = new Reservation();
+        entity.setId(1L);
+        when(catalogConnector.getCities(Set.of("BUE", "MIA", "XXX"))).thenReturn(Mono.just(getCities()));
+        when(conversionService.convert(valid, Reservation.class)).thenReturn(entity);
+
+        List<ReservationResultDTO> results = service.saveAll(List.of(valid, invalid)).collectList().block();
+
+        assertThat(results).extracting(ReservationResultDTO::getIndex, ReservationResultDTO::getStatus).containsExactly(
+                tuple(0, HttpStatus.CREATED.value()), tuple(1, APIError.VALIDATION_ERROR.getHttpStatus().value()));
+        verify(repository).saveAll(saved.capture());
+        assertThat(saved.getValue()).containsExactly(entity);
+    }
+
+    @Test
+    void getReservationByIdCachesTheLoadedReservation() {
+        Reservation entity = new Reservation();
+        ReservationDTO loaded = getReservation(1L);
+        loaded.setId(1L);
+        when(repository.findById(1L)).thenReturn(Optional.of(entity));
+        when(conversionService.convert(entity, ReservationDTO.class)).thenReturn(loaded);
+
+        service.getReservationById(1L).block();
+
+        assertThat(service.getReservationById(1L).block()).isSameAs(loaded);
+        assertThat(service.getVersion(1L).block()).isEqualTo(1L);
+        verify(repository).findById(1L);
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void getReservationByIdDoesNotCacheAReservationEvictedWhileLoading() {
+        Reservation entity = new Reservation();
+        ReservationDTO loaded = getReservation(1L);
+        loaded.setId(1L);
+        // The status changes while the reservation is loaded, so the loaded copy is older than the database
+        when(repository.findById(1L)).thenAnswer(invocation -> {
+            service.changeStatus(1L, Status.FINISHED);
+            return Optional.of(entity);
+        });
+        when(repository.updateStatusById(1L, Status.FINISHED, Status.FINISHED.getPredecessors())).thenReturn(1);
+        when(conversionService.convert(Status.FINISHED, StatusDTO.class)).thenReturn(StatusDTO.FINISHED);
+        when(conversionService.convert(entity, ReservationDTO.class)).thenReturn(loaded);
+        when(repository.findVersionById(1L)).thenReturn(Optional.of(2L));
+
+        service.getReservationById(1L).block();
+
+        assertThat(service.getVersion(1L).block()).isEqualTo(2L);
+        verify(repository).findVersionById(1L);
+    }
+
+    @Test
+    void changeStatusToTheCurrentStatusIsIgnored() {
+        when(repository.updateStatusById(1L, Status.FINISHED, Status.FINISHED.getPredecessors())).thenReturn(0);
+        when(repository.findStatusById(1L)).thenReturn(Optional.of(Status.FINISHED));
+
+        service.changeStatus(1L, Status.FINISHED);
+
+        verify(producer, never()).sendMessage(any());
+    }
+
+    @Test
+    void changeStatusOfMissingReservationAnswersNotFound() {
+        when(repository.updateStatusById(1L, Status.FINISHED, Status.FINISHED.getPredecessors())).thenReturn(0);
+        when(repository.findStatusById(1L)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.changeStatus(1L, Status.FINISHED)).isInstanceOf(EdteamException.class)
+                .hasFieldOrPropertyWithValue("status", APIError.RESERVATION_NOT_FOUND.getHttpStatus());
+        verify(producer, never()).sendMessage(any());
+    }
+
+    private ReservationDTO getReservation(Long version) {
+        SegmentDTO segment = new SegmentDTO();
+        segment.setOrigin("BUE");
+        segment.setDestination("MIA");
+        ItineraryDTO itinerary = new ItineraryDTO();
+        itinerary.setSegment(List.of(segment));
+
+        ReservationDTO reservation = new ReservationDTO();
+        reservation.setItinerary(itinerary);
+        reservation.setVersion(version);
+        return reservation;
+    }
+
+    private Map<String, CityDTO> getCities() {
+        return Map.of("BUE", new CityDTO(), "MIA", new CityDTO());
+    }
+}
@@ -0,0 +1,166 @@
+package com.edteam.reservations.specification;
+
+import com.edteam.reservations.DatabaseTest;
+import com.edteam.reservations.dto.ReservationCursorDTO;
+import com.edteam.reservations.dto.SearchReservationCriteriaDTO;
+import com.edteam.reservations.model.Reservation;
+import com.edteam.reservations.repository.impl.ReservationStreamRepositoryImpl;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs each search as the service does, takes the statements that reached the database from the general log and
+// checks with EXPLAIN that none of them reads a whole table
+class ReservationSpecificationPlanTest extends DatabaseTest {
+
+    private static final int ROWS = 1000;
+
+    private static final long FIRST_ID = 1_000_000;
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(2022, 1, 1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private ReservationStreamRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ReservationStreamRepositoryImpl(entityManagerFactory, Schedulers.immediate());
+
+        Integer loaded = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservation WHERE id >= ?", Integer.class,
+                FIRST_ID);
+        if (loaded == 0) {
+            load();
+        }
+    }
+
+    @Test
+    void searchByReservationDateUsesTheIndex() {
+        SearchReservationCriteriaDTO criteria = getCriteria();
+        criteria.setReservationDate(FIRST_DATE.plusDays(10));
+
+        assertIndexed(ReservationSpecification.withSearchCriteria(criteria), "IDX_reservation_creation_date");
+    }
+
+    @Test
+    void searchByFirstNameUsesTheIndex() {
+        SearchReservationCriteriaDTO criteria = getCriteria();
+        criteria.setFirstName("Name7");
+
+        assertIndexed(ReservationSpecification.withSearchCriteria(criteria), "IDX_passenger_first_name");
+    }
+
+    @Test
+    void searchByLastNameUsesTheIndex() {
+        SearchReservationCriteriaDTO criteria = getCriteria();
+        criteria.setLastName("Surname7");
+
+        assertIndexed(ReservationSpecification.withSearchCriteria(criteria), "IDX_passenger_last_name");
+    }
+
+    @Test
+    void searchSortedByCreationDateReadsTheIndexInOrder() {
+        SearchReservationCriteriaDTO criteria = getCriteria();
+        criteria.setSortField("creationDate");
+        criteria.setSortingDirection("desc");
+
+        List<Map<String, Object>> plan = assertIndexed(ReservationSpecification.withSearchCriteria(criteria),
+                "IDX_reservation_creation_date");
+        assertThat(plan).noneMatch(row -> String.valueOf(row.get("Extra")).contains("filesort"));
+    }
+
+    @Test
+    void pageAfterTheCursorSeeksInTheIndex() {
+        SearchReservationCriteriaDTO criteria = getCriteria();
+        criteria.setSortField("creationDate");
+        criteria.setSortingDirection("asc");
+        ReservationCursorDTO cursor = new ReservationCursorDTO("creationDate", "asc",
+                FIRST_DATE.plusDays(100).toString(), FIRST_ID + 100, "");
+
+        List<Map<String, Object>> plan = assertIndexed(ReservationSpecification.withKeyset(criteria, cursor),
+                "IDX_reservation_creation_date");
+        assertThat(plan).noneMatch(row -> String.valueOf(row.get("Extra")).contains("filesort"));
+    }
+
+    // Explains the statements of the search and returns the plan of the one that reads the reservations
+    private List<Map<String, Object>> assertIndexed(Specification<Reservation> specification, String index) {
+        List<String> statements = capture(specification);
+        assertThat(statements).isNotEmpty();
+
+        List<Map<String, Object>> search = null;
+        for (String statement : statements) {
+            List<Map<String, Object>> plan = jdbcTemplate.queryForList("EXPLAIN " + statement);
+            assertThat(plan).as(statement).noneMatch(row -> "ALL".equals(row.get("type")));
+            if (statement.contains("from reservation")) {
+                search = plan;
+            }
+        }
+
+        assertThat(search).isNotNull().anyMatch(row -> index.equals(row.get("key")));
+        return search;
+    }
+
+    private List<String> capture(Specification<Reservation> specification) {
+        jdbcTemplate.execute("SET GLOBAL log_output = 'TABLE'");
+        jdbcTemplate.execute("TRUNCATE TABLE mysql.general_log");
+        jdbcTemplate.execute("SET GLOBAL general_log = 1");
+        try {
+            repository.stream(specification, PageRequest.of(0, 10), 100, Function.identity()).blockLast();
+        } finally {
+            jdbcTemplate.execute("SET GLOBAL general_log = 0");
+        }
+
+        return jdbcTemplate.queryForList(
+                "SELECT CONVERT(argument USING utf8mb4) FROM mysql.general_log "
+                        + "WHERE command_type IN ('Query', 'Execute') AND argument LIKE 'select %' ORDER BY event_time",
+                String.class);
+    }
+
+    // The reservations are spread over the days and the names, so the optimizer has statistics close to the ones of
+    // the production tables instead of the few rows of the migrations
+    private void load() {
+        String numbers = "WITH RECURSIVE n (i) AS (SELECT 0 UNION ALL SELECT i + 1 FROM n WHERE i < " + (ROWS - 1)
+                + ") ";
+        jdbcTemplate.update("INSERT INTO price (id, base_price, total_price, total_tax, version) " + numbers
+                + "SELECT ? + i, 10, 12, 2, 0 FROM n", FIRST_ID);
+        jdbcTemplate.update(
+                "INSERT INTO itinerary (id, itinerary_id, version) " + numbers + "SELECT ? + i, ? + i, 0 FROM n",
+                FIRST_ID, FIRST_ID);
+        jdbcTemplate.update(
+                "INSERT INTO segment (id, itinerary_id, origin, destination, departure, arrival, carrier, "
+                        + "version) " + numbers
+                        + "SELECT ? + i, ? + i, 'BUE', 'MIA', '2023-12-31', '2024-01-01', 'AA', 0 " + "FROM n",
+                FIRST_ID, FIRST_ID);
+        jdbcTemplate.update(
+                "INSERT INTO reservation (id, itinerary_id, creation_date, status, version) " + numbers
+                        + "SELECT ? + i, ? + i, DATE_ADD(?, INTERVAL i MOD 365 DAY), 'CREATED', 0 FROM n",
+                FIRST_ID, FIRST_ID, FIRST_DATE);
+        jdbcTemplate.update("INSERT INTO passenger (id, reservation_id, first_name, last_name, document_number, "
+                + "document_type, birthday, version) " + numbers + "SELECT ? + i, ? + i, CONCAT('Name', i MOD 500), "
+                + "CONCAT('Surname', i MOD 700), CONCAT('AB', i), 'PASSPORT', '1985-01-01', 0 FROM n", FIRST_ID,
+                FIRST_ID);
+        jdbcTemplate.execute("ANALYZE TABLE price, itinerary, segment, reservation, passenger");
+    }
+
+    private SearchReservationCriteriaDTO getCriteria() {
+        SearchReservationCriteriaDTO criteria = new SearchReservationCriteriaDTO();
+        criteria.setPageSize(10);
+        return criteria;
+    }
+}
@@ -0,0 +1,71 @@
+package com.edteam.reservations.connector;
+
+import com.edteam.reservations.connector.response.CityDTO;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+// Immutable snapshot of the cities, the 3 letters of the IATA code are packed in an int used as position of the array
+public class CityIndex {
+
+    private static final int LETTERS = 26;
+
+    private static final int CODE_LENGTH = 3;
+
+    private final CityDTO[] cities = new CityDTO[LETTERS * LETTERS * LETTERS];
+
+    private final int size;
+
+    private final Instant loadedAt;
+
+    private CityIndex(Collection<CityDTO> cities, Instant loadedAt) {
+        int loaded = 0;
+        for (CityDTO city : cities) {
+            int position = pack(city.getCode());
+            if (position >= 0) {
+                this.cities[position] = city;
+                loaded++;
+            }
+        }
+        this.size = loaded;
+        this.loadedAt = loadedAt;
+    }
+
+    public static CityIndex empty() {
+        return new CityIndex(List.of(), Instant.EPOCH);
+    }
+
+    public static CityIndex of(Collection<CityDTO> cities) {
+        return new CityIndex(cities, Instant.now());
+    }
+
+    public CityDTO get(String code) {
+        int position = pack(code);
+        return position < 0 ? null : cities[position];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Instant getLoadedAt() {
+        return loadedAt;
+    }
+
+    static int pack(String code) {
+        if (code == null || code.length() != CODE_LENGTH) {
+            return -1;
+        }
+
+        int packed = 0;
+        for (int i = 0; i < CODE_LENGTH; i++) {
+            int letter = code.charAt(i) - 'A';
+            if (letter < 0 || letter >= LETTERS) {
+                return -1;
+            }
+            packed = packed * LETTERS + letter;
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,103 @@
+package com.edteam.reservations.connector;
+
+import com.edteam.reservations.connector.configuration.HedgingConfiguration;
+import com.edteam.reservations.connector.configuration.HttpConnectorConfiguration;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class HedgingRegistry {
+
+    private final Map<String, Hedge> hedges = new HashMap<>();
+
+    private final LatencyRegistry latency;
+
+    @Autowired
+    public HedgingRegistry(HttpConnectorConfiguration configuration, LatencyRegistry latency,
+            MeterRegistry meterRegistry) {
+        this.latency = latency;
+        configuration.getHosts().forEach((hostName, hostConfiguration) -> hostConfiguration.getEndpoints()
+                .forEach((endpointName, endpointConfiguration) -> {
+                    if (endpointConfiguration.getHedging().isEnabled()) {
+                        String name = getName(hostName, endpointName);
+                        hedges.put(name, new Hedge(name, endpointConfiguration.getHedging(), meterRegistry));
+                    }
+                }));
+    }
+
+    // If the call does not answer before the configured percentile of the latency a second call is sent and the
+    // first one to answer wins. A failed hedge never wins over the original call and the budget limits the extra
+    // calls to a fraction of the requests.
+    public <T> Mono<T> hedge(String host, String endpoint, Mono<T> call) {
+        Hedge hedge = hedges.get(getName(host, endpoint));
+        if (hedge == null) {
+            return call;
+        }
+
+        return Mono.defer(() -> {
+            hedge.requests.increment();
+            hedge.deposit();
+
+            Duration delay = latency.getPercentile(host, endpoint, hedge.configuration.getPercentile());
+            Duration minDelay = Duration.ofMillis(hedge.configuration.getMinDelay());
+
+            Mono<T> backup = Mono.delay(delay.compareTo(minDelay) < 0 ? minDelay : delay)
+                    .flatMap(tick -> hedge.tryAcquire()
+                            ? call.doOnSubscribe(subscription -> hedge.hedges.increment())
+                                    .doOnSuccess(value -> hedge.wins.increment()).onErrorResume(e -> Mono.never())
+                            : Mono.<T> never());
+            return Mono.firstWithSignal(call, backup);
+        });
+    }
+
+    private String getName(String host, String endpoint) {
+        return host + "." + endpoint;
+    }
+
+    private static class Hedge {
+
+        private static final long TOKEN = 1000;
+
+        private final HedgingConfiguration configuration;
+
+        private final AtomicLong tokens = new AtomicLong();
+
+        private final Counter requests;
+
+        private final Counter hedges;
+
+        private final Counter wins;
+
+        Hedge(String name, HedgingConfiguration configuration, MeterRegistry meterRegistry) {
+            this.configuration = configuration;
+            this.requests = meterRegistry.counter("http.connector.hedging.requests", "name", name);
+            this.hedges = meterRegistry.counter("http.connector.hedging.hedges", "name", name);
+            this.wins = meterRegistry.counter("http.connector.hedging.wins", "name", name);
+        }
+
+        void deposit() {
+            long deposit = (long) (configuration.getBudget() * TOKEN);
+            long max = configuration.getBurst() * TOKEN;
+            tokens.updateAndGet(current -> Math.min(max, current + deposit));
+        }
+
+        boolean tryAcquire() {
+            long current;
+            do {
+                current = tokens.get();
+                if (current < TOKEN) {
+                    return false;
+                }
+            } while (!tokens.compareAndSet(current, current - TOKEN));
+            return true;
+        }
+    }
+}
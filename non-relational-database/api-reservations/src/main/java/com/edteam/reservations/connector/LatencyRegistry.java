@@ -0,0 +1,62 @@
+package com.edteam.reservations.connector;
+
+import com.edteam.reservations.connector.configuration.EndpointConfiguration;
+import com.edteam.reservations.connector.configuration.HttpConnectorConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class LatencyRegistry {
+
+    private final Map<String, Timer> timers = new HashMap<>();
+
+    @Autowired
+    public LatencyRegistry(HttpConnectorConfiguration configuration, MeterRegistry meterRegistry) {
+        configuration.getHosts().forEach((hostName, hostConfiguration) -> hostConfiguration.getEndpoints()
+                .forEach((endpointName, endpointConfiguration) -> {
+                    String name = getName(hostName, endpointName);
+                    timers.put(name,
+                            Timer.builder("http.connector.latency").tag("name", name)
+                                    .publishPercentiles(getPercentiles(endpointConfiguration))
+                                    .distributionStatisticExpiry(Duration.ofMinutes(1)).register(meterRegistry));
+                }));
+    }
+
+    public <T> Mono<T> record(String host, String endpoint, Mono<T> call) {
+        Timer timer = timers.get(getName(host, endpoint));
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            // The errors, timeouts and cancelled calls are recorded too, otherwise a slow catalog would only keep its
+            // fast answers. The call that loses a hedge is the slow one, so its time until the cancel is kept as a
+            // lower bound of its latency instead of leaving the tail out of the percentiles of the hedge delay.
+            return call.doFinally(signal -> timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    public Duration getPercentile(String host, String endpoint, double percentile) {
+        for (ValueAtPercentile value : timers.get(getName(host, endpoint)).takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return Duration.ofNanos((long) value.value(TimeUnit.NANOSECONDS));
+            }
+        }
+        return Duration.ZERO;
+    }
+
+    private double[] getPercentiles(EndpointConfiguration configuration) {
+        return new double[] { configuration.getHedging().getPercentile(),
+                configuration.getAdaptiveTimeout().getPercentile() };
+    }
+
+    private String getName(String host, String endpoint) {
+        return host + "." + endpoint;
+    }
+}
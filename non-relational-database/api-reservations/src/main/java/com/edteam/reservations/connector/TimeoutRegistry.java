@@ -0,0 +1,57 @@
+package com.edteam.reservations.connector;
+
+import com.edteam.reservations.connector.configuration.AdaptiveTimeoutConfiguration;
+import com.edteam.reservations.connector.configuration.EndpointConfiguration;
+import com.edteam.reservations.connector.configuration.HttpConnectorConfiguration;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+public class TimeoutRegistry {
+
+    private final HttpConnectorConfiguration configuration;
+
+    private final LatencyRegistry latency;
+
+    @Autowired
+    public TimeoutRegistry(HttpConnectorConfiguration configuration, LatencyRegistry latency) {
+        this.configuration = configuration;
+        this.latency = latency;
+    }
+
+    // The adaptive timeout is the configured percentile of the latency of the last minute multiplied by a factor
+    // and clamped between the min and max values. Without calls in that window the static readTimeout is used.
+    public Duration getReadTimeout(String host, String endpoint) {
+        EndpointConfiguration endpointConfiguration = configuration.getHosts().get(host).getEndpoints().get(endpoint);
+        AdaptiveTimeoutConfiguration adaptive = endpointConfiguration.getAdaptiveTimeout();
+        if (!adaptive.isEnabled()) {
+            return Duration.ofMillis(endpointConfiguration.getReadTimeout());
+        }
+
+        Duration observed = latency.getPercentile(host, endpoint, adaptive.getPercentile());
+        if (observed.isZero()) {
+            return Duration.ofMillis(endpointConfiguration.getReadTimeout());
+        }
+
+        long timeout = (long) (observed.toMillis() * adaptive.getFactor());
+        return Duration.ofMillis(Math.max(adaptive.getMinTimeout(), Math.min(adaptive.getMaxTimeout(), timeout)));
+    }
+
+    public Map<String, Map<String, Object>> getTimeouts() {
+        Map<String, Map<String, Object>> timeouts = new LinkedHashMap<>();
+        configuration.getHosts().forEach((hostName, hostConfiguration) -> hostConfiguration.getEndpoints()
+                .forEach((endpointName, endpointConfiguration) -> {
+                    Map<String, Object> values = new LinkedHashMap<>();
+                    values.put("adaptive", endpointConfiguration.getAdaptiveTimeout().isEnabled());
+                    values.put("connectionTimeout", endpointConfiguration.getConnectionTimeout());
+                    values.put("writeTimeout", endpointConfiguration.getWriteTimeout());
+                    values.put("readTimeout", getReadTimeout(hostName, endpointName).toMillis());
+                    timeouts.put(hostName + "." + endpointName, values);
+                }));
+        return timeouts;
+    }
+}
@@ -2,17 +2,22 @@ package com.edteam.reservations.controller;
 
 import com.edteam.reservations.controller.resource.ReservationResource;
 import com.edteam.reservations.dto.ReservationDTO;
+import com.edteam.reservations.dto.ReservationPageDTO;
 import com.edteam.reservations.dto.SearchReservationCriteriaDTO;
+import com.edteam.reservations.service.IdempotencyService;
 import com.edteam.reservations.service.ReservationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.security.Principal;
+
 @RestController
 @RequestMapping("/reservation")
 @Validated
@@ -20,18 +25,28 @@ public class ReservationController implements ReservationResource {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ReservationController.class);
     private final ReservationService service;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public ReservationController(ReservationService service) {
+    public ReservationController(ReservationService service, IdempotencyService idempotencyService) {
         this.service = service;
+        this.idempotencyService = idempotencyService;
     }
 
-    @GetMapping
+    @GetMapping(produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE,
+            MediaType.TEXT_EVENT_STREAM_VALUE })
     public Flux<ReservationDTO> getReservations(SearchReservationCriteriaDTO criteria) {
         LOGGER.info("Obtain all the reservations");
         return service.getReservations(criteria);
     }
 
+    @GetMapping("/page")
+    public Mono<ReservationPageDTO> getReservationPage(SearchReservationCriteriaDTO criteria,
+            @RequestParam(required = false) String cursor) {
+        LOGGER.info("Obtain a page of the reservations");
+        return service.getReservationPage(criteria, cursor);
+    }
+
     @GetMapping("/{id}")
     public Mono<ReservationDTO> getReservationById(@PathVariable String id) {
         LOGGER.info("Obtain information from a reservation with {}", id);
@@ -39,9 +54,10 @@ public class ReservationController implements ReservationResource {
     }
 
     @PostMapping
-    public Mono<ReservationDTO> save(@RequestBody ReservationDTO reservation) {
+    public Mono<ReservationDTO> save(@RequestBody ReservationDTO reservation,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey, Principal principal) {
         LOGGER.info("Saving new reservation");
-        return service.save(reservation);
+        return idempotencyService.execute(principal, idempotencyKey, reservation, () -> service.save(reservation));
     }
 
     @PutMapping("/{id}")
@@ -0,0 +1,140 @@
+package com.edteam.reservations.dto;
+
+import com.edteam.reservations.enums.APIError;
+import com.edteam.reservations.exception.EdteamException;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+public class ReservationCursorDTO {
+
+    private String sortField;
+    private String sortingDirection;
+    private String value;
+    private String id;
+    private String filters;
+
+    public ReservationCursorDTO(String sortField, String sortingDirection, String value, String id, String filters) {
+        this.sortField = sortField;
+        this.sortingDirection = sortingDirection;
+        this.value = value;
+        this.id = id;
+        this.filters = filters;
+    }
+
+    // The first page is sorted like the criteria and the next ones keep the sort of the cursor, the id is always the
+    // last sort field so the position of each reservation is unique. The cursor is signed together with the filters
+    // of the search, so a modified cursor or one used with other filters or another sort is rejected.
+    public static ReservationCursorDTO of(SearchReservationCriteriaDTO criteria, String token, SecretKey key) {
+        if (token != null) {
+            ReservationCursorDTO cursor = decode(token, getFilters(criteria), key);
+            if (criteria.getSortField() != null && !criteria.getSortField().equals(cursor.getSortField())
+                    || criteria.getSortingDirection() != null
+                            && !criteria.getSortingDirection().equals(cursor.getSortingDirection())) {
+                throw new EdteamException(APIError.INVALID_CURSOR);
+            }
+            return cursor;
+        }
+
+        String sortField = criteria.getSortField() != null ? criteria.getSortField() : "id";
+        if (!SearchReservationCriteriaDTO.SORT_FIELDS.contains(sortField)) {
+            throw new EdteamException(APIError.VALIDATION_ERROR);
+        }
+        return new ReservationCursorDTO(sortField, "desc".equals(criteria.getSortingDirection()) ? "desc" : "asc", null,
+                null, getFilters(criteria));
+    }
+
+    private static ReservationCursorDTO decode(String token, String filters, SecretKey key) {
+        try {
+            String[] signed = token.split("\\.", -1);
+            if (signed.length != 2 || !MessageDigest.isEqual(Base64.getUrlDecoder().decode(signed[1]),
+                    sign(key, signed[0], filters))) {
+                throw new EdteamException(APIError.INVALID_CURSOR);
+            }
+
+            String payload = new String(Base64.getUrlDecoder().decode(signed[0]), StandardCharsets.UTF_8);
+            String[] parts = payload.split(",", -1);
+            if (parts.length != 4 || !SearchReservationCriteriaDTO.SORT_FIELDS.contains(parts[0])
+                    || !List.of("asc", "desc").contains(parts[1]) || parts[3].isEmpty()) {
+                throw new EdteamException(APIError.INVALID_CURSOR);
+            }
+
+            ReservationCursorDTO cursor = new ReservationCursorDTO(parts[0], parts[1],
+                    parts[2].isEmpty() ? null : parts[2], parts[3], filters);
+            // The cursor sorted by date needs the date of the last reservation to compare the next ones
+            if ("creationDate".equals(cursor.getSortField())) {
+                if (cursor.getValue() == null) {
+                    throw new EdteamException(APIError.INVALID_CURSOR);
+                }
+                cursor.getDateValue();
+            }
+            return cursor;
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new EdteamException(APIError.INVALID_CURSOR);
+        }
+    }
+
+    // Each filter goes with its length, so the values of two filters can not be moved from one to the other
+    private static String getFilters(SearchReservationCriteriaDTO criteria) {
+        return Stream
+                .of(criteria.getItineraryId(), criteria.getFirstName(), criteria.getLastName(),
+                        criteria.getReservationDate())
+                .map(filter -> Objects.toString(filter, "")).map(filter -> filter.length() + ":" + filter)
+                .reduce("", String::concat);
+    }
+
+    private static byte[] sign(SecretKey key, String cursor, String filters) {
+        try {
+            Mac mac = Mac.getInstance(key.getAlgorithm());
+            mac.init(key);
+            return mac.doFinal((cursor + "|" + filters).getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("The cursor can not be signed", e);
+        }
+    }
+
+    public ReservationCursorDTO next(ReservationDTO last) {
+        String lastValue = "creationDate".equals(sortField) ? last.getCreationDate().toString() : null;
+        return new ReservationCursorDTO(sortField, sortingDirection, lastValue, last.getId(), filters);
+    }
+
+    public String encode(SecretKey key) {
+        String cursor = String.join(",", sortField, sortingDirection, value != null ? value : "", String.valueOf(id));
+        String encoded = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+        return encoded + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(key, encoded, filters));
+    }
+
+    public boolean isAscending() {
+        return "asc".equals(sortingDirection);
+    }
+
+    public String getSortField() {
+        return sortField;
+    }
+
+    public String getSortingDirection() {
+        return sortingDirection;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public LocalDate getDateValue() {
+        return LocalDate.parse(value);
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -7,7 +7,10 @@ public enum APIError {
     BAD_FORMAT(HttpStatus.BAD_REQUEST, "The message not have a correct form"),
     RESERVATION_NOT_FOUND(HttpStatus.NOT_FOUND, "Reservation not found"),
     RESERVATION_WITH_SAME_ID(HttpStatus.BAD_REQUEST, "There is a reservation with the same id"),
-    EXCEED_NUMBER_OPERATIONS(HttpStatus.TOO_MANY_REQUESTS, "You exceed the number of operations"),;
+    EXCEED_NUMBER_OPERATIONS(HttpStatus.TOO_MANY_REQUESTS, "You exceed the number of operations"),
+    CATALOG_UNAVAILABLE(HttpStatus.SERVICE_UNAVAILABLE, "The catalog of cities is not available"),
+    INVALID_CURSOR(HttpStatus.BAD_REQUEST, "The cursor of the page is not valid"),
+    IDEMPOTENCY_KEY_REUSED(HttpStatus.UNPROCESSABLE_ENTITY, "The idempotency key was used with another request"),;
 
     private final HttpStatus httpStatus;
     private final String message;
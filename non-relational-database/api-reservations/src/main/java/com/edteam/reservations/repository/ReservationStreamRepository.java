@@ -0,0 +1,16 @@
+package com.edteam.reservations.repository;
+
+import com.edteam.reservations.model.Reservation;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.util.function.Function;
+
+public interface ReservationStreamRepository {
+
+    <T> Flux<T> stream(Example<Reservation> example, Pageable pageable, int fetchSize, Function<Reservation, T> mapper);
+
+    <T> Flux<T> stream(Query query, int fetchSize, Function<Reservation, T> mapper);
+}
@@ -0,0 +1,45 @@
+package com.edteam.reservations.repository.impl;
+
+import com.edteam.reservations.model.Reservation;
+import com.edteam.reservations.repository.ReservationStreamRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.function.Function;
+
+// It is not a fragment of ReservationRepository because Spring Data takes a repository with a reactive method for a
+// reactive repository and the application does not start
+@Repository
+public class ReservationStreamRepositoryImpl implements ReservationStreamRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final Scheduler databaseScheduler;
+
+    @Autowired
+    public ReservationStreamRepositoryImpl(MongoTemplate mongoTemplate, Scheduler databaseScheduler) {
+        this.mongoTemplate = mongoTemplate;
+        this.databaseScheduler = databaseScheduler;
+    }
+
+    // The documents are read from the cursor only when the subscriber requests them, the cursor is closed when the
+    // stream completes or it is cancelled.
+    @Override
+    public <T> Flux<T> stream(Example<Reservation> example, Pageable pageable, int fetchSize,
+            Function<Reservation, T> mapper) {
+        return stream(new Query(new Criteria().alike(example)).with(pageable), fetchSize, mapper);
+    }
+
+    @Override
+    public <T> Flux<T> stream(Query query, int fetchSize, Function<Reservation, T> mapper) {
+        return Flux.fromStream(() -> mongoTemplate.stream(query.cursorBatchSize(fetchSize), Reservation.class))
+                .map(mapper).subscribeOn(databaseScheduler);
+    }
+}
@@ -1,11 +1,16 @@
 package com.edteam.reservations.repository.query;
 
+import com.edteam.reservations.dto.ReservationCursorDTO;
 import com.edteam.reservations.dto.SearchReservationCriteriaDTO;
 import com.edteam.reservations.model.Passenger;
 import com.edteam.reservations.model.Reservation;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -25,6 +30,31 @@ public class ReservationQuery {
         return Example.of(entity, matcher);
     }
 
+    // The page starts after the last reservation of the previous one, comparing the sort field and then the id, so
+    // the cursor seeks in the index instead of skipping the documents of all the previous pages
+    public static Query queryWithKeyset(SearchReservationCriteriaDTO criteria, ReservationCursorDTO cursor, int limit) {
+        Sort.Direction direction = cursor.isAscending() ? Sort.Direction.ASC : Sort.Direction.DESC;
+        Criteria search = new Criteria().alike(exampleWithSearchCriteria(criteria));
+
+        if ("id".equals(cursor.getSortField())) {
+            if (cursor.getId() != null) {
+                search = after(search.and("id"), cursor.getId(), cursor);
+            }
+            return new Query(search).with(Sort.by(direction, "id")).limit(limit);
+        }
+
+        if (cursor.getId() != null) {
+            LocalDate value = cursor.getDateValue();
+            search = search.orOperator(after(Criteria.where(cursor.getSortField()), value, cursor),
+                    after(Criteria.where(cursor.getSortField()).is(value).and("id"), cursor.getId(), cursor));
+        }
+        return new Query(search).with(Sort.by(direction, cursor.getSortField(), "id")).limit(limit);
+    }
+
+    private static Criteria after(Criteria criteria, Object value, ReservationCursorDTO cursor) {
+        return cursor.isAscending() ? criteria.gt(value) : criteria.lt(value);
+    }
+
     private static void createPassengers(Reservation entity) {
         if (Objects.isNull(entity.getPassengers())) {
             List<Passenger> passengers = new ArrayList<>();
@@ -1,15 +1,26 @@
 package com.edteam.reservations.service;
 
+import com.edteam.reservations.configuration.ReservationConfiguration;
 import com.edteam.reservations.connector.CatalogConnector;
-import com.edteam.reservations.connector.response.CityDTO;
 import com.edteam.reservations.dto.SearchReservationCriteriaDTO;
 import com.edteam.reservations.dto.SegmentDTO;
 import com.edteam.reservations.enums.APIError;
 import com.edteam.reservations.exception.EdteamException;
+import com.edteam.reservations.dto.ReservationCursorDTO;
 import com.edteam.reservations.dto.ReservationDTO;
+import com.edteam.reservations.dto.ReservationPageDTO;
+import com.edteam.reservations.model.Itinerary;
+import com.edteam.reservations.model.Passenger;
+import com.edteam.reservations.model.Price;
 import com.edteam.reservations.model.Reservation;
+import com.edteam.reservations.model.Segment;
 import com.edteam.reservations.repository.ReservationRepository;
+import com.edteam.reservations.repository.ReservationStreamRepository;
 import com.edteam.reservations.repository.query.ReservationQuery;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.validation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,107 +31,228 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 @Service
 public class ReservationService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ReservationService.class);
 
+    private static final int EVICTION_STRIPES = 1024;
+
+    private static final String CURSOR_ALGORITHM = "HmacSHA256";
+
     private ReservationRepository repository;
 
+    private ReservationStreamRepository streamRepository;
+
     private ConversionService conversionService;
 
     private CatalogConnector catalogConnector;
 
+    private ReservationConfiguration configuration;
+
+    private Scheduler databaseScheduler;
+
+    private boolean cacheEnabled;
+
+    private Cache<String, ReservationDTO> cache;
+
+    // Each eviction increments the counter of the stripe of the id, so a read can tell if the reservation was
+    // evicted while it was loading it
+    private AtomicLongArray evictions = new AtomicLongArray(EVICTION_STRIPES);
+
+    private SecretKey cursorKey;
+
+    private Validator validator;
+
     @Autowired
-    public ReservationService(ReservationRepository repository, ConversionService conversionService,
-                              CatalogConnector catalogConnector) {
+    public ReservationService(ReservationRepository repository, ReservationStreamRepository streamRepository,
+            ConversionService conversionService, CatalogConnector catalogConnector,
+            ReservationConfiguration configuration, Scheduler databaseScheduler, Validator validator,
+            MeterRegistry meterRegistry) {
         this.repository = repository;
+        this.streamRepository = streamRepository;
         this.conversionService = conversionService;
         this.catalogConnector = catalogConnector;
+        this.configuration = configuration;
+        this.databaseScheduler = databaseScheduler;
+        this.validator = validator;
+
+        // The metadata of the constraints is built at startup instead of in the first validation
+        for (Class<?> type : List.of(Reservation.class, Passenger.class, Itinerary.class, Segment.class, Price.class)) {
+            validator.getConstraintsForClass(type);
+        }
+
+        this.cacheEnabled = configuration.isCacheEnabled();
+        this.cache = Caffeine.newBuilder().maximumSize(configuration.getCacheMaximumSize())
+                .expireAfterWrite(Duration.ofMillis(configuration.getCacheTtl())).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "reservations");
+
+        this.cursorKey = getCursorKey(configuration.getCursorSecret());
     }
 
     public Flux<ReservationDTO> getReservations(SearchReservationCriteriaDTO criteria) {
         Pageable pageable = PageRequest.of(criteria.getPageActual(), criteria.getPageSize());
 
-        List<Reservation> reservations = repository.findAll(ReservationQuery.exampleWithSearchCriteria(criteria), pageable).toList();
+        Flux<ReservationDTO> reservations = streamRepository.stream(
+                ReservationQuery.exampleWithSearchCriteria(criteria), pageable, configuration.getSearchFetchSize(),
+                reservation -> conversionService.convert(reservation, ReservationDTO.class));
+
+        // The pacing is optional and applies to each subscriber, the rows are read only when they are requested
+        if (configuration.getSearchRate() > 0) {
+            return reservations.delayElements(Duration.ofMillis(1000 / configuration.getSearchRate()));
+        }
+        return reservations;
+    }
 
-        return Flux.fromIterable(reservations)
-                .mapNotNull(reservation -> conversionService.convert(reservation, ReservationDTO.class))
-                //.zipWith(Flux.interval(Duration.ofSeconds(1)), (reservation, interval) -> reservation);
-                .concatMap(reservation -> Mono.just(conversionService.convert(reservation, ReservationDTO.class))
-                        .delayElement(Duration.ofMillis(1500)));  // Retardo de 1500 ms por cada elemento
-                //.delayElements(Duration.ofSeconds(2));
+    public Mono<ReservationPageDTO> getReservationPage(SearchReservationCriteriaDTO criteria, String token) {
+        return Mono
+                .fromCallable(
+                        () -> ReservationCursorDTO.of(criteria, token, cursorKey))
+                .flatMap(cursor -> streamRepository
+                        .stream(ReservationQuery.queryWithKeyset(criteria, cursor, criteria.getPageSize()),
+                                configuration.getSearchFetchSize(),
+                                reservation -> conversionService.convert(reservation, ReservationDTO.class))
+                        .collectList().map(reservations -> toPage(cursor, reservations, criteria.getPageSize())));
     }
 
     public Mono<ReservationDTO> getReservationById(String id) {
-        Optional<Reservation> result = repository.findById(id);
-        if (result.isEmpty()) {
-            LOGGER.debug("Not exist reservation with the id {}", id);
-            throw new EdteamException(APIError.RESERVATION_NOT_FOUND);
-        }
-        return Mono.justOrEmpty(conversionService.convert(result.get(), ReservationDTO.class));
+        return Mono.defer(() -> {
+            ReservationDTO cached = cacheEnabled ? cache.getIfPresent(id) : null;
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+
+            long generation = evictions.get(getStripe(id));
+            return Mono.fromCallable(() -> findReservation(id)).subscribeOn(databaseScheduler)
+                    .doOnNext(reservation -> cacheLoadedReservation(reservation, generation));
+        });
     }
 
     public Mono<ReservationDTO> save(ReservationDTO reservation) {
         if (Objects.nonNull(reservation.getId())) {
-            throw new EdteamException(APIError.RESERVATION_WITH_SAME_ID);
+            return Mono.error(new EdteamException(APIError.RESERVATION_WITH_SAME_ID));
         }
-        checkCity(reservation);
 
-        Reservation transformed = conversionService.convert(reservation, Reservation.class);
-        validateEntity(transformed);
-
-        Reservation result = repository.save(Objects.requireNonNull(transformed));
-        return Mono.justOrEmpty(conversionService.convert(result, ReservationDTO.class));
+        return checkCity(reservation).then(Mono.fromCallable(() -> persist(reservation)).subscribeOn(databaseScheduler))
+                .doOnNext(this::cacheReservation);
     }
 
     public Mono<ReservationDTO> update(String id, ReservationDTO reservation) {
-        if (!repository.existsById(id)) {
+        reservation.setId(id);
+
+        return checkExists(id).then(checkCity(reservation))
+                .then(Mono.fromCallable(() -> persist(reservation)).subscribeOn(databaseScheduler))
+                .doOnNext(this::cacheReservation).doOnError(e -> evictReservation(id));
+    }
+
+    public Mono<Void> delete(String id) {
+        return checkExists(id)
+                .then(Mono.<Void> fromRunnable(() -> repository.deleteById(id)).subscribeOn(databaseScheduler))
+                .doFinally(signal -> evictReservation(id));
+    }
+
+    // A short page is the last one, otherwise the next page starts after its last reservation
+    private ReservationPageDTO toPage(ReservationCursorDTO cursor, List<ReservationDTO> reservations, int pageSize) {
+        String next = reservations.size() < pageSize ? null
+                : cursor.next(reservations.get(reservations.size() - 1)).encode(cursorKey);
+        return new ReservationPageDTO(reservations, next);
+    }
+
+    private ReservationDTO findReservation(String id) {
+        ReservationDTO result = repository.findById(id)
+                .map(reservation -> conversionService.convert(reservation, ReservationDTO.class)).orElse(null);
+        if (result == null) {
             LOGGER.debug("Not exist reservation with the id {}", id);
             throw new EdteamException(APIError.RESERVATION_NOT_FOUND);
         }
-        checkCity(reservation);
+        return result;
+    }
 
-        Reservation transformed = conversionService.convert(reservation, Reservation.class);
-        validateEntity(transformed);
-        Reservation result = repository.save(Objects.requireNonNull(transformed));
+    private void cacheReservation(ReservationDTO reservation) {
+        if (cacheEnabled && reservation.getId() != null) {
+            cache.put(reservation.getId(), reservation);
+        }
+    }
 
-        return Mono.justOrEmpty(conversionService.convert(result, ReservationDTO.class));
+    // A read that finishes after an eviction of the same id can hold the copy before the write, so it is not cached
+    // and the next read loads the reservation again. The check runs inside the compute, where the eviction waits.
+    private void cacheLoadedReservation(ReservationDTO reservation, long generation) {
+        if (cacheEnabled) {
+            cache.asMap().compute(reservation.getId(), (key, cached) -> evictions.get(getStripe(key)) != generation
+                    ? cached : Objects.requireNonNullElse(cached, reservation));
+        }
     }
 
-    public Mono<Void> delete(String id) {
-        if (!repository.existsById(id)) {
-            LOGGER.debug("Not exist reservation with the id {}", id);
-            throw new EdteamException(APIError.RESERVATION_NOT_FOUND);
+    private static SecretKey getCursorKey(String secret) {
+        if (secret != null) {
+            return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), CURSOR_ALGORITHM);
         }
 
-        repository.deleteById(id);
+        try {
+            return KeyGenerator.getInstance(CURSOR_ALGORITHM).generateKey();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The key of the cursors can not be generated", e);
+        }
+    }
 
-        return Mono.empty();
+    private int getStripe(String id) {
+        return Math.floorMod(id.hashCode(), EVICTION_STRIPES);
     }
 
-    private void checkCity(ReservationDTO reservationDTO) {
-        for (SegmentDTO segmentDTO : reservationDTO.getItinerary().getSegment()) {
-            Mono<CityDTO> origin = catalogConnector.getCity(segmentDTO.getOrigin());
-            Mono<CityDTO> destination = catalogConnector.getCity(segmentDTO.getDestination());
+    private void evictReservation(String id) {
+        if (cacheEnabled) {
+            evictions.incrementAndGet(getStripe(id));
+            cache.invalidate(id);
+        }
+    }
 
-            if (origin.block() == null || destination.block() == null) {
-                throw new EdteamException(APIError.VALIDATION_ERROR);
+    private Mono<Void> checkExists(String id) {
+        return Mono.fromCallable(() -> repository.existsById(id)).subscribeOn(databaseScheduler).flatMap(exists -> {
+            if (!exists) {
+                LOGGER.debug("Not exist reservation with the id {}", id);
+                return Mono.error(new EdteamException(APIError.RESERVATION_NOT_FOUND));
             }
+            return Mono.empty();
+        });
+    }
+
+    private Mono<Void> checkCity(ReservationDTO reservationDTO) {
+        Set<String> codes = new HashSet<>();
+        for (SegmentDTO segmentDTO : reservationDTO.getItinerary().getSegment()) {
+            codes.add(segmentDTO.getOrigin());
+            codes.add(segmentDTO.getDestination());
         }
+
+        return catalogConnector.containsCities(codes).filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.error(() -> new EdteamException(APIError.VALIDATION_ERROR))).then()
+                .timeout(Duration.ofMillis(configuration.getCatalogTimeout()),
+                        Mono.error(() -> new EdteamException(APIError.CATALOG_UNAVAILABLE)));
+    }
+
+    private ReservationDTO persist(ReservationDTO reservation) {
+        Reservation transformed = conversionService.convert(reservation, Reservation.class);
+        validateEntity(transformed);
+
+        Reservation result = repository.save(Objects.requireNonNull(transformed));
+        return conversionService.convert(result, ReservationDTO.class);
     }
 
     private void validateEntity(Reservation transformed) {
-        ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-        Validator validator = factory.getValidator();
         Set<ConstraintViolation<Reservation>> violations = validator.validate(transformed);
         if (!violations.isEmpty()) {
             throw new ConstraintViolationException(violations);
@@ -1,14 +1,13 @@
 package com.edteam.reservations.connector;
 
-import com.edteam.reservations.connector.configuration.EndpointConfiguration;
-import com.edteam.reservations.connector.configuration.HostConfiguration;
-import com.edteam.reservations.connector.configuration.HttpConnectorConfiguration;
 import com.edteam.reservations.connector.response.CityDTO;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
 
 @Component
 public class CatalogConnector {
@@ -18,19 +17,20 @@ public class CatalogConnector {
 
     private final String ENDPOINT = "get-city";
 
-    private HttpConnectorConfiguration configuration;
+    private final RestTemplate client;
 
     @Autowired
-    public CatalogConnector(HttpConnectorConfiguration configuration) {
-        this.configuration = configuration;
+    public CatalogConnector(RestTemplateRegistry registry) {
+        this.client = registry.getClient(HOST, ENDPOINT);
     }
 
     public CityDTO getCity(String code) {
         LOGGER.info("calling to api-catalog");
 
-        HostConfiguration hostConfiguration = configuration.getHosts().get(HOST);
-        EndpointConfiguration endpointConfiguration = hostConfiguration.getEndpoints().get(ENDPOINT);
-
-        return new CityDTO();
+        try {
+            return client.getForObject("", CityDTO.class, code);
+        } catch (HttpClientErrorException.NotFound e) {
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
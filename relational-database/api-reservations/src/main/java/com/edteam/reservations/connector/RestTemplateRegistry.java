@@ -0,0 +1,106 @@
+package com.edteam.reservations.connector;
+
+import com.edteam.reservations.connector.configuration.EndpointConfiguration;
+import com.edteam.reservations.connector.configuration.HostConfiguration;
+import com.edteam.reservations.connector.configuration.HttpConnectorConfiguration;
+import com.edteam.reservations.connector.configuration.PoolConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+public class RestTemplateRegistry implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RestTemplateRegistry.class);
+
+    private final Map<String, PoolingHttpClientConnectionManager> managers = new HashMap<>();
+
+    private final Map<String, Map<String, RestTemplate>> clients = new HashMap<>();
+
+    @Autowired
+    public RestTemplateRegistry(HttpConnectorConfiguration configuration, RestTemplateBuilder builder,
+            MeterRegistry meterRegistry) {
+        configuration.getHosts().forEach((hostName, hostConfiguration) -> {
+            PoolingHttpClientConnectionManager manager = createManager(hostName, hostConfiguration);
+            new PoolingHttpClientConnectionManagerMetricsBinder(manager, hostName).bindTo(meterRegistry);
+            managers.put(hostName, manager);
+
+            Map<String, RestTemplate> endpoints = new HashMap<>();
+            hostConfiguration.getEndpoints().forEach((endpointName, endpointConfiguration) -> endpoints
+                    .put(endpointName, createClient(hostConfiguration, endpointConfiguration, manager, builder)));
+            clients.put(hostName, endpoints);
+        });
+    }
+
+    public RestTemplate getClient(String host, String endpoint) {
+        RestTemplate client = clients.getOrDefault(host, Map.of()).get(endpoint);
+        if (client == null) {
+            throw new IllegalArgumentException(String.format("There is no configuration for %s - %s", host, endpoint));
+        }
+        return client;
+    }
+
+    @Override
+    public void destroy() {
+        managers.values().forEach(PoolingHttpClientConnectionManager::close);
+    }
+
+    private PoolingHttpClientConnectionManager createManager(String hostName, HostConfiguration hostConfiguration) {
+        PoolConfiguration pool = hostConfiguration.getPool();
+        LOGGER.info("Creating connection pool for {} with {} connections", hostName, pool.getMaxConnections());
+
+        // The connections are shared by all the endpoints of the host, so they are opened with the longest connection
+        // timeout of them
+        int connectionTimeout = hostConfiguration.getEndpoints().values().stream()
+                .mapToInt(EndpointConfiguration::getConnectionTimeout).max().orElse(0);
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(connectionTimeout)).build();
+
+        // All the connections of the pool go to the same host, so the limit per route is the same as the total
+        return PoolingHttpClientConnectionManagerBuilder.create().setMaxConnTotal(pool.getMaxConnections())
+                .setMaxConnPerRoute(pool.getMaxConnections()).setDefaultConnectionConfig(connectionConfig).build();
+    }
+
+    private RestTemplate createClient(HostConfiguration hostConfiguration, EndpointConfiguration endpointConfiguration,
+            PoolingHttpClientConnectionManager manager, RestTemplateBuilder builder) {
+        PoolConfiguration pool = hostConfiguration.getPool();
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setResponseTimeout(Timeout.ofMilliseconds(endpointConfiguration.getReadTimeout()))
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(pool.getPendingAcquireTimeout())).build();
+
+        // The pool is shared by all the endpoints of the host and it is closed by this registry
+        CloseableHttpClient httpClient = HttpClients.custom().setConnectionManager(manager)
+                .setConnectionManagerShared(true).setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(TimeValue.ofMilliseconds(pool.getMaxIdleTime())).evictExpiredConnections()
+                .build();
+
+        return builder
+                .uriTemplateHandler(new DefaultUriBuilderFactory("http://" + hostConfiguration.getHost() + ":"
+                        + hostConfiguration.getPort() + endpointConfiguration.getUrl()))
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient)).build();
+    }
+}
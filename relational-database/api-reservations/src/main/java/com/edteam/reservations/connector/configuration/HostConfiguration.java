@@ -10,6 +10,8 @@ public class HostConfiguration {
 
     private HashMap<String, EndpointConfiguration> endpoints;
 
+    private PoolConfiguration pool = new PoolConfiguration();
+
     public String getHost() {
         return host;
     }
@@ -33,4 +35,12 @@ public class HostConfiguration {
     public void setEndpoints(HashMap<String, EndpointConfiguration> endpoints) {
         this.endpoints = endpoints;
     }
+
+    public PoolConfiguration getPool() {
+        return pool;
+    }
+
+    public void setPool(PoolConfiguration pool) {
+        this.pool = pool;
+    }
 }
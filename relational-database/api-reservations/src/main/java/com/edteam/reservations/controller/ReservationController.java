@@ -2,16 +2,22 @@ package com.edteam.reservations.controller;
 
 import com.edteam.reservations.controller.resource.ReservationResource;
 import com.edteam.reservations.dto.ReservationDTO;
+import com.edteam.reservations.dto.ReservationPageDTO;
+import com.edteam.reservations.dto.ReservationResultDTO;
 import com.edteam.reservations.dto.SearchReservationCriteriaDTO;
+import com.edteam.reservations.service.IdempotencyService;
 import com.edteam.reservations.service.ReservationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+import java.util.Arrays;
 import java.util.List;
 
 @RestController
@@ -21,10 +27,12 @@ public class ReservationController implements ReservationResource {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ReservationController.class);
     private final ReservationService service;
+    private final IdempotencyService idempotencyService;
 
     @Autowired
-    public ReservationController(ReservationService service) {
+    public ReservationController(ReservationService service, IdempotencyService idempotencyService) {
         this.service = service;
+        this.idempotencyService = idempotencyService;
     }
 
     @GetMapping
@@ -34,20 +42,45 @@ public class ReservationController implements ReservationResource {
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<ReservationPageDTO> getReservationPage(SearchReservationCriteriaDTO criteria,
+            @RequestParam(required = false) String cursor) {
+        LOGGER.info("Obtain a page of the reservations");
+        ReservationPageDTO response = service.getReservationPage(criteria, cursor);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<ReservationDTO> getReservationById(@PathVariable Long id) {
+    public ResponseEntity<ReservationDTO> getReservationById(@PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         LOGGER.info("Obtain information from a reservation with {}", id);
+        // When the client has a copy only the version is read, the reservation is loaded only if it changed
+        if (ifNoneMatch != null) {
+            String eTag = eTag(id, service.getVersion(id));
+            if (matches(ifNoneMatch, eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+        }
         ReservationDTO response = service.getReservationById(id);
-        return new ResponseEntity<>(response, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(eTag(response.getId(), response.getVersion())).body(response);
     }
 
     @PostMapping
-    public ResponseEntity<ReservationDTO> save(@RequestBody ReservationDTO reservation) {
+    public ResponseEntity<ReservationDTO> save(@RequestBody ReservationDTO reservation,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey, Principal principal) {
         LOGGER.info("Saving new reservation");
-        ReservationDTO response = service.save(reservation);
+        ReservationDTO response = idempotencyService.execute(principal, idempotencyKey, reservation,
+                () -> service.save(reservation));
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<List<ReservationResultDTO>> saveAll(@RequestBody List<ReservationDTO> reservations) {
+        LOGGER.info("Saving {} new reservations", reservations.size());
+        List<ReservationResultDTO> response = service.saveAll(reservations);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ReservationDTO> update(@PathVariable Long id, @RequestBody ReservationDTO reservation) {
         LOGGER.info("Updating a reservation with {}", id);
@@ -57,10 +90,19 @@ public class ReservationController implements ReservationResource {
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> delete(@PathVariable Long id) {
+    public ResponseEntity<Void> delete(@PathVariable Long id, @RequestParam(required = false) Long version) {
         LOGGER.info("Deleting a reservation with {}", id);
-        service.delete(id);
+        service.delete(id, version);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    // The version increases with every change of the reservation, so together with the id it identifies the content
+    private String eTag(Long id, Long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+
+    private boolean matches(String ifNoneMatch, String eTag) {
+        return Arrays.stream(ifNoneMatch.split(",")).map(String::trim)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(eTag) || tag.equals("W/" + eTag));
+    }
 }
@@ -2,6 +2,8 @@ package com.edteam.reservations.controller.resource;
 
 import com.edteam.reservations.dto.ErrorDTO;
 import com.edteam.reservations.dto.ReservationDTO;
+import com.edteam.reservations.dto.ReservationPageDTO;
+import com.edteam.reservations.dto.ReservationResultDTO;
 import com.edteam.reservations.dto.SearchReservationCriteriaDTO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,10 +15,12 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
 import java.util.List;
 
 @Tag(name = "Reservation", description = "Operations about the reservation entity")
@@ -27,32 +31,61 @@ public interface ReservationResource {
             @ApiResponse(responseCode = "500", description = "Something bad happens to obtain th reservations", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))), })
     public ResponseEntity<List<ReservationDTO>> getReservations(SearchReservationCriteriaDTO criteria);
 
+    @Operation(description = "Get one page of the reservations, each page starts after the last reservation of the previous one", responses = {
+            @ApiResponse(responseCode = "200", description = "Return the reservations of the page and the cursor of the next one", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ReservationPageDTO.class))),
+
+            @ApiResponse(responseCode = "400", description = "The sort field or the cursor are not valid", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))),
+
+            @ApiResponse(responseCode = "500", description = "Something bad happens to obtain th reservations", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))) }, parameters = {
+                    @Parameter(in = ParameterIn.QUERY, name = "cursor", description = "Cursor returned in the previous page, without it the first page is returned") })
+    public ResponseEntity<ReservationPageDTO> getReservationPage(SearchReservationCriteriaDTO criteria,
+            @RequestParam(required = false) String cursor);
+
     @Operation(description = "Get the information about one reservation", responses = {
             @ApiResponse(responseCode = "200", description = "Return the information of one reservation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ReservationDTO.class))),
 
+            @ApiResponse(responseCode = "304", description = "The reservation did not change since the version of the ETag"),
+
             @ApiResponse(responseCode = "404", description = "Reservation not found", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))),
 
             @ApiResponse(responseCode = "500", description = "Something bad happens to obtain th reservations", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))) }, parameters = {
-                    @Parameter(in = ParameterIn.PATH, name = "id", description = "Id of the reservation to search", example = "1") })
-    public ResponseEntity<ReservationDTO> getReservationById(@Min(1) @PathVariable Long id);
+                    @Parameter(in = ParameterIn.PATH, name = "id", description = "Id of the reservation to search", example = "1"),
+                    @Parameter(in = ParameterIn.HEADER, name = HttpHeaders.IF_NONE_MATCH, description = "ETag of the copy of the reservation that the client has", example = "\"1-0\"") })
+    public ResponseEntity<ReservationDTO> getReservationById(@Min(1) @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch);
 
     @Operation(description = "Create one reservation", responses = {
             @ApiResponse(responseCode = "200", description = "Return the created reservation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ReservationDTO.class))),
 
             @ApiResponse(responseCode = "400", description = "Bad request of the information to persist", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))),
 
-            @ApiResponse(responseCode = "500", description = "Something bad happens to obtain th reservations", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))) }, requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(content = @Content(examples = @ExampleObject(name = "Reservation", summary = "Example reservation to create", value = "{\n"
-                    + "    \"passengers\": [\n" + "        {\n" + "            \"firstName\": \"Andres\",\n"
-                    + "            \"lastName\": \"Sacco\",\n" + "            \"documentNumber\": \"12345678\",\n"
-                    + "            \"documentType\": \"DNI\",\n" + "            \"birthday\": \"1985-01-01\"\n"
-                    + "        }\n" + "    ],\n" + "    \"itinerary\": {\n" + "        \"segment\": [\n"
-                    + "            {\n" + "                \"origin\": \"BUE\",\n"
-                    + "                \"destination\": \"MIA\",\n" + "                \"departure\": \"2024-12-31\",\n"
-                    + "                \"arrival\": \"2025-01-01\",\n" + "                \"carrier\": \"AA\"\n"
-                    + "            }\n" + "        ],\n" + "        \"price\": {\n" + "            \"totalPrice\": 1,\n"
-                    + "            \"totalTax\": 0,\n" + "            \"basePrice\": 1\n" + "        }\n" + "    }\n"
-                    + "}"))))
-    public ResponseEntity<ReservationDTO> save(@RequestBody @Valid ReservationDTO reservation);
+            @ApiResponse(responseCode = "422", description = "The idempotency key was used with another body", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))),
+
+            @ApiResponse(responseCode = "500", description = "Something bad happens to obtain th reservations", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))) }, parameters = {
+                    @Parameter(in = ParameterIn.HEADER, name = "Idempotency-Key", description = "Key of the request for the caller, the repeats with the same key and body return the reservation created by the first one", example = "3f1c2a9e-6b4d-4e8a-9c7f-2d5b8e1a0c44") }, requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(content = @Content(examples = @ExampleObject(name = "Reservation", summary = "Example reservation to create", value = "{\n"
+                            + "    \"passengers\": [\n" + "        {\n" + "            \"firstName\": \"Andres\",\n"
+                            + "            \"lastName\": \"Sacco\",\n"
+                            + "            \"documentNumber\": \"12345678\",\n"
+                            + "            \"documentType\": \"DNI\",\n" + "            \"birthday\": \"1985-01-01\"\n"
+                            + "        }\n" + "    ],\n" + "    \"itinerary\": {\n" + "        \"segment\": [\n"
+                            + "            {\n" + "                \"origin\": \"BUE\",\n"
+                            + "                \"destination\": \"MIA\",\n"
+                            + "                \"departure\": \"2024-12-31\",\n"
+                            + "                \"arrival\": \"2025-01-01\",\n" + "                \"carrier\": \"AA\"\n"
+                            + "            }\n" + "        ],\n" + "        \"price\": {\n"
+                            + "            \"totalPrice\": 1,\n" + "            \"totalTax\": 0,\n"
+                            + "            \"basePrice\": 1\n" + "        }\n" + "    }\n" + "}"))))
+    public ResponseEntity<ReservationDTO> save(@RequestBody @Valid ReservationDTO reservation,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @Parameter(hidden = true) Principal principal);
+
+    @Operation(description = "Create many reservations", responses = {
+            @ApiResponse(responseCode = "200", description = "Return the result of each reservation in the same order", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = List.class))),
+
+            @ApiResponse(responseCode = "503", description = "The catalog of cities is not available", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))),
+
+            @ApiResponse(responseCode = "500", description = "Something bad happens to obtain th reservations", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))) })
+    ResponseEntity<List<ReservationResultDTO>> saveAll(@RequestBody List<ReservationDTO> reservations);
 
     @Operation(description = "Update one reservation", responses = {
             @ApiResponse(responseCode = "200", description = "Return the updated reservation", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ReservationDTO.class))),
@@ -81,6 +114,7 @@ public interface ReservationResource {
             @ApiResponse(responseCode = "404", description = "Reservation not found", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))),
 
             @ApiResponse(responseCode = "500", description = "Something bad happens to obtain th reservations", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = ErrorDTO.class))) }, parameters = {
-                    @Parameter(in = ParameterIn.PATH, name = "id", description = "Id of the reservation to delete", example = "1") })
-    public ResponseEntity<Void> delete(@Min(1) @PathVariable Long id);
+                    @Parameter(in = ParameterIn.PATH, name = "id", description = "Id of the reservation to delete", example = "1"),
+                    @Parameter(in = ParameterIn.QUERY, name = "version", description = "Version of the reservation to delete, it is checked in the optimistic mode", example = "0") })
+    public ResponseEntity<Void> delete(@Min(1) @PathVariable Long id, @RequestParam(required = false) Long version);
 }
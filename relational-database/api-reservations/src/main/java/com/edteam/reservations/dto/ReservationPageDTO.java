@@ -0,0 +1,21 @@
+package com.edteam.reservations.dto;
+
+import java.util.List;
+
+public class ReservationPageDTO {
+    private List<ReservationDTO> reservations;
+    private String next;
+
+    public ReservationPageDTO(List<ReservationDTO> reservations, String next) {
+        this.reservations = reservations;
+        this.next = next;
+    }
+
+    public List<ReservationDTO> getReservations() {
+        return reservations;
+    }
+
+    public String getNext() {
+        return next;
+    }
+}
@@ -8,7 +8,8 @@ import java.util.Objects;
 public class Base {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "base_sequence")
+    @SequenceGenerator(name = "base_sequence", sequenceName = "base_sequence", allocationSize = 50)
     private Long id;
 
     @Version
@@ -0,0 +1,11 @@
+package com.edteam.reservations.repository;
+
+import com.edteam.reservations.model.Reservation;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface ReservationKeysetRepository {
+
+    List<Reservation> findAll(Specification<Reservation> specification, int limit);
+}
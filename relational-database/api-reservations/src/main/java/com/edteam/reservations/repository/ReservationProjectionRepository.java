@@ -0,0 +1,15 @@
+package com.edteam.reservations.repository;
+
+import com.edteam.reservations.dto.ReservationDTO;
+import com.edteam.reservations.model.Reservation;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface ReservationProjectionRepository {
+
+    @Transactional(readOnly = true, timeout = 30)
+    List<ReservationDTO> findAllProjected(Specification<Reservation> specification, Pageable pageable);
+}
@@ -3,6 +3,7 @@ package com.edteam.reservations.repository;
 import com.edteam.reservations.model.Reservation;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -10,10 +11,19 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
-public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+public interface ReservationRepository
+        extends JpaRepository<Reservation, Long>, ReservationKeysetRepository, ReservationProjectionRepository {
 
+    @EntityGraph(Reservation.ITINERARY_GRAPH)
     @Transactional(readOnly = true, timeout = 30)
     List<Reservation> findAll(Specification<Reservation> specification, Pageable pageable);
 
-}
\ No newline at end of file
+    @EntityGraph(Reservation.ITINERARY_GRAPH)
+    Optional<Reservation> findById(Long id);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT e.version FROM Reservation e WHERE e.id = ?1")
+    Optional<Long> findVersionById(Long id);
+}
@@ -0,0 +1,39 @@
+package com.edteam.reservations.repository.impl;
+
+import com.edteam.reservations.model.Reservation;
+import com.edteam.reservations.repository.ReservationKeysetRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public class ReservationKeysetRepositoryImpl implements ReservationKeysetRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Only the rows of the page are read, without the offset and without the count query of a Page
+    @Override
+    @Transactional(readOnly = true, timeout = 30)
+    public List<Reservation> findAll(Specification<Reservation> specification, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Reservation> query = criteriaBuilder.createQuery(Reservation.class);
+        Root<Reservation> root = query.from(Reservation.class);
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        return entityManager.createQuery(query).setMaxResults(limit).setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, entityManager.getEntityGraph(Reservation.ITINERARY_GRAPH))
+                .getResultList();
+    }
+}
@@ -0,0 +1,100 @@
+package com.edteam.reservations.service;
+
+import com.edteam.reservations.configuration.IdempotencyConfiguration;
+import com.edteam.reservations.dto.ReservationDTO;
+import com.edteam.reservations.enums.APIError;
+import com.edteam.reservations.exception.EdteamException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+@Service
+public class IdempotencyService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private ObjectMapper objectMapper;
+
+    private Cache<String, Result> results;
+
+    @Autowired
+    public IdempotencyService(IdempotencyConfiguration configuration, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.results = Caffeine.newBuilder().maximumSize(configuration.getMaximumSize())
+                .expireAfterWrite(Duration.ofMillis(configuration.getTtl())).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "idempotency");
+    }
+
+    // The first request with a key reserves it with a pending result and executes the operation outside the lock of
+    // the cache, the concurrent duplicates wait for that result and the repeats return it. A failed operation is
+    // removed so the client can retry it with the same key. The key belongs to the caller and to the request it was
+    // first used with, a repeat with another request is rejected instead of returning a result that does not match.
+    public ReservationDTO execute(Principal principal, String key, Object request, Supplier<ReservationDTO> operation) {
+        if (key == null) {
+            return operation.get();
+        }
+
+        String scopedKey = getScopedKey(principal, key);
+        Result pending = new Result(getFingerprint(request), new CompletableFuture<>());
+        Result existing = results.asMap().putIfAbsent(scopedKey, pending);
+        if (existing != null) {
+            if (!existing.fingerprint().equals(pending.fingerprint())) {
+                LOGGER.debug("The idempotency key {} was used with another request", key);
+                throw new EdteamException(APIError.IDEMPOTENCY_KEY_REUSED);
+            }
+            return await(existing.response());
+        }
+
+        try {
+            ReservationDTO result = operation.get();
+            pending.response().complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            LOGGER.debug("The operation with the idempotency key {} failed", key);
+            results.asMap().remove(scopedKey, pending);
+            pending.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private ReservationDTO await(CompletableFuture<ReservationDTO> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private String getScopedKey(Principal principal, String key) {
+        return (principal == null ? "" : principal.getName()) + ":" + key;
+    }
+
+    private String getFingerprint(Object request) {
+        try {
+            return HexFormat.of()
+                    .formatHex(MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The request can not be hashed", e);
+        }
+    }
+
+    private record Result(String fingerprint, CompletableFuture<ReservationDTO> response) {
+    }
+}
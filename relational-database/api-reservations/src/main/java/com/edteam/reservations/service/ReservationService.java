@@ -1,61 +1,154 @@
 package com.edteam.reservations.service;
 
+import com.edteam.reservations.configuration.ReservationConfiguration;
 import com.edteam.reservations.connector.CatalogConnector;
 import com.edteam.reservations.connector.response.CityDTO;
 import com.edteam.reservations.dto.SearchReservationCriteriaDTO;
 import com.edteam.reservations.dto.SegmentDTO;
 import com.edteam.reservations.enums.APIError;
 import com.edteam.reservations.exception.EdteamException;
+import com.edteam.reservations.dto.ReservationCursorDTO;
 import com.edteam.reservations.dto.ReservationDTO;
+import com.edteam.reservations.dto.ReservationPageDTO;
+import com.edteam.reservations.dto.ReservationResultDTO;
+import com.edteam.reservations.model.Itinerary;
+import com.edteam.reservations.model.Passenger;
+import com.edteam.reservations.model.Price;
 import com.edteam.reservations.model.Reservation;
+import com.edteam.reservations.model.Segment;
 import com.edteam.reservations.repository.ReservationRepository;
 import com.edteam.reservations.specification.ReservationSpecification;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import jakarta.validation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
 
 @Service
 public class ReservationService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ReservationService.class);
 
+    private static final int EVICTION_STRIPES = 1024;
+
+    private static final String CURSOR_ALGORITHM = "HmacSHA256";
+
     private ReservationRepository repository;
 
     private ConversionService conversionService;
 
     private CatalogConnector catalogConnector;
 
+    private Validator validator;
+
+    private ReservationConfiguration configuration;
+
+    private boolean cacheEnabled;
+
+    private Cache<Long, ReservationDTO> cache;
+
+    // Each eviction increments the counter of the stripe of the id, so a read can tell if the reservation was
+    // evicted while it was loading it
+    private AtomicLongArray evictions = new AtomicLongArray(EVICTION_STRIPES);
+
+    private SecretKey cursorKey;
+
     @Autowired
     public ReservationService(ReservationRepository repository, ConversionService conversionService,
-            CatalogConnector catalogConnector) {
+            CatalogConnector catalogConnector, Validator validator, ReservationConfiguration configuration,
+            MeterRegistry meterRegistry) {
         this.repository = repository;
         this.conversionService = conversionService;
         this.catalogConnector = catalogConnector;
+        this.validator = validator;
+        this.configuration = configuration;
+
+        // The metadata of the constraints is built at startup instead of in the first validation
+        for (Class<?> type : List.of(Reservation.class, Passenger.class, Itinerary.class, Segment.class, Price.class)) {
+            validator.getConstraintsForClass(type);
+        }
+
+        this.cacheEnabled = configuration.isCacheEnabled();
+        this.cache = Caffeine.newBuilder().maximumSize(configuration.getCacheMaximumSize())
+                .expireAfterWrite(Duration.ofMillis(configuration.getCacheTtl())).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "reservations");
+
+        this.cursorKey = getCursorKey(configuration.getCursorSecret());
     }
 
     public List<ReservationDTO> getReservations(SearchReservationCriteriaDTO criteria) {
         Pageable pageable = PageRequest.of(criteria.getPageActual(), criteria.getPageSize());
+        if (configuration.isSearchProjection()) {
+            return repository.findAllProjected(ReservationSpecification.withSearchCriteria(criteria), pageable);
+        }
         return conversionService.convert(
                 repository.findAll(ReservationSpecification.withSearchCriteria(criteria), pageable), List.class);
     }
 
+    public ReservationPageDTO getReservationPage(SearchReservationCriteriaDTO criteria, String token) {
+        ReservationCursorDTO cursor = ReservationCursorDTO.of(criteria, token, cursorKey);
+        List<ReservationDTO> reservations = repository
+                .findAll(ReservationSpecification.withKeyset(criteria, cursor), criteria.getPageSize()).stream()
+                .map(reservation -> conversionService.convert(reservation, ReservationDTO.class)).toList();
+
+        // A short page is the last one, otherwise the next page starts after its last reservation
+        String next = reservations.size() < criteria.getPageSize() ? null
+                : cursor.next(reservations.get(reservations.size() - 1)).encode(cursorKey);
+        return new ReservationPageDTO(reservations, next);
+    }
+
+    // The reservation is loaded outside the lock of the cache, so a slow query does not block the other reads and
+    // writes of the same id
     public ReservationDTO getReservationById(Long id) {
-        Optional<Reservation> result = repository.findById(id);
-        if (result.isEmpty()) {
-            LOGGER.debug("Not exist reservation with the id {}", id);
-            throw new EdteamException(APIError.RESERVATION_NOT_FOUND);
+        ReservationDTO cached = cacheEnabled ? cache.getIfPresent(id) : null;
+        if (cached != null) {
+            return cached;
         }
-        return conversionService.convert(result.get(), ReservationDTO.class);
+
+        long generation = evictions.get(getStripe(id));
+        ReservationDTO reservation = findReservation(id);
+        cacheLoadedReservation(reservation, generation);
+        return reservation;
+    }
+
+    // The version is taken from the cache or read alone, without loading the relations of the reservation
+    public Long getVersion(Long id) {
+        ReservationDTO cached = cacheEnabled ? cache.getIfPresent(id) : null;
+        if (cached != null && cached.getVersion() != null) {
+            return cached.getVersion();
+        }
+        return repository.findVersionById(id).orElseThrow(() -> {
+            LOGGER.debug("Not exist reservation with the id {}", id);
+            return new EdteamException(APIError.RESERVATION_NOT_FOUND);
+        });
     }
 
     public ReservationDTO save(ReservationDTO reservation) {
@@ -68,11 +161,42 @@ public class ReservationService {
         validateEntity(transformed);
 
         Reservation result = repository.save(Objects.requireNonNull(transformed));
-        return conversionService.convert(result, ReservationDTO.class);
+        return cacheReservation(conversionService.convert(result, ReservationDTO.class));
+    }
+
+    // The cities of all the reservations are validated once and the valid reservations are saved in chunks, each
+    // chunk in one transaction so the inserts are sent in JDBC batches
+    public List<ReservationResultDTO> saveAll(List<ReservationDTO> reservations) {
+        Set<String> codes = new HashSet<>();
+        reservations.stream().filter(this::hasCodes).forEach(reservation -> codes.addAll(getCodes(reservation)));
+
+        Set<String> cities = new HashSet<>();
+        for (String code : codes) {
+            if (catalogConnector.getCity(code) != null) {
+                cities.add(code);
+            }
+        }
+
+        List<ReservationResultDTO> results = new ArrayList<>();
+        for (int start = 0; start < reservations.size(); start += configuration.getBulkChunkSize()) {
+            List<Integer> indexes = IntStream
+                    .range(start, Math.min(start + configuration.getBulkChunkSize(), reservations.size())).boxed()
+                    .toList();
+            results.addAll(persistAll(reservations, indexes, cities));
+        }
+        return results;
     }
 
     public ReservationDTO update(Long id, ReservationDTO reservation) {
-        if (!repository.existsById(id)) {
+        reservation.setId(id);
+
+        // In the optimistic mode the existence is not checked before saving, the version is checked by the update
+        // and only when it fails another query tells if the reservation was modified or deleted
+        if (configuration.isOptimistic()) {
+            if (Objects.isNull(reservation.getVersion())) {
+                throw new EdteamException(APIError.VALIDATION_ERROR);
+            }
+        } else if (!repository.existsById(id)) {
             LOGGER.debug("Not exist reservation with the id {}", id);
             throw new EdteamException(APIError.RESERVATION_NOT_FOUND);
         }
@@ -80,17 +204,111 @@ public class ReservationService {
 
         Reservation transformed = conversionService.convert(reservation, Reservation.class);
         validateEntity(transformed);
-        Reservation result = repository.save(Objects.requireNonNull(transformed));
-        return conversionService.convert(result, ReservationDTO.class);
+        try {
+            Reservation result = repository.save(Objects.requireNonNull(transformed));
+            return cacheReservation(conversionService.convert(result, ReservationDTO.class));
+        } catch (OptimisticLockingFailureException e) {
+            evictReservation(id);
+            throw conflictOrNotFound(id);
+        }
+    }
+
+    public void delete(Long id, Long version) {
+        try {
+            if (configuration.isOptimistic()) {
+                remove(id, version);
+                return;
+            }
+
+            if (!repository.existsById(id)) {
+                LOGGER.debug("Not exist reservation with the id {}", id);
+                throw new EdteamException(APIError.RESERVATION_NOT_FOUND);
+            }
+
+            repository.deleteById(id);
+        } finally {
+            evictReservation(id);
+        }
     }
 
-    public void delete(Long id) {
-        if (!repository.existsById(id)) {
+    // The reservation is loaded and removed instead of deleted with one statement, so the passengers, the itinerary,
+    // the segments and the price are removed with it and the delete still checks the version
+    private void remove(Long id, Long version) {
+        if (Objects.isNull(version)) {
+            throw new EdteamException(APIError.VALIDATION_ERROR);
+        }
+
+        Reservation reservation = repository.findById(id).orElseThrow(() -> {
+            LOGGER.debug("Not exist reservation with the id {}", id);
+            return new EdteamException(APIError.RESERVATION_NOT_FOUND);
+        });
+        if (!version.equals(reservation.getVersion())) {
+            LOGGER.debug("The reservation with the id {} was modified", id);
+            throw new EdteamException(APIError.RESERVATION_CONFLICT);
+        }
+
+        try {
+            repository.delete(reservation);
+        } catch (OptimisticLockingFailureException e) {
+            throw conflictOrNotFound(id);
+        }
+    }
+
+    private ReservationDTO findReservation(Long id) {
+        Optional<Reservation> result = repository.findById(id);
+        if (result.isEmpty()) {
             LOGGER.debug("Not exist reservation with the id {}", id);
             throw new EdteamException(APIError.RESERVATION_NOT_FOUND);
         }
+        return conversionService.convert(result.get(), ReservationDTO.class);
+    }
+
+    // The copy with the highest version is kept, so a read or a write that finishes late does not replace a newer one
+    private ReservationDTO cacheReservation(ReservationDTO reservation) {
+        if (cacheEnabled && reservation != null && reservation.getId() != null) {
+            cache.asMap().merge(reservation.getId(), reservation,
+                    (cached, loaded) -> loaded.getVersion() >= cached.getVersion() ? loaded : cached);
+        }
+        return reservation;
+    }
+
+    // A read that finishes after an eviction of the same id can hold the copy before the write, so it is not cached
+    // and the next read loads the reservation again. The check runs inside the compute, where the eviction waits.
+    private void cacheLoadedReservation(ReservationDTO reservation, long generation) {
+        if (cacheEnabled) {
+            cache.asMap().compute(reservation.getId(),
+                    (key, cached) -> evictions.get(getStripe(key)) != generation ? cached
+                            : cached == null || reservation.getVersion() >= cached.getVersion() ? reservation : cached);
+        }
+    }
+
+    private static SecretKey getCursorKey(String secret) {
+        if (secret != null) {
+            return new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), CURSOR_ALGORITHM);
+        }
+
+        try {
+            return KeyGenerator.getInstance(CURSOR_ALGORITHM).generateKey();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The key of the cursors can not be generated", e);
+        }
+    }
+
+    private int getStripe(Long id) {
+        return Math.floorMod(id.hashCode(), EVICTION_STRIPES);
+    }
+
+    private void evictReservation(Long id) {
+        if (cacheEnabled) {
+            evictions.incrementAndGet(getStripe(id));
+            cache.invalidate(id);
+        }
+    }
 
-        repository.deleteById(id);
+    private EdteamException conflictOrNotFound(Long id) {
+        LOGGER.debug("The reservation with the id {} was modified or deleted", id);
+        return new EdteamException(
+                repository.existsById(id) ? APIError.RESERVATION_CONFLICT : APIError.RESERVATION_NOT_FOUND);
     }
 
     private void checkCity(ReservationDTO reservationDTO) {
@@ -104,9 +322,71 @@ public class ReservationService {
         }
     }
 
+    // An item of the bulk import is not validated by the controller, so it can come without an itinerary, segments
+    // or cities and it fails alone instead of the whole request
+    private boolean hasCodes(ReservationDTO reservationDTO) {
+        return Objects.nonNull(reservationDTO) && Objects.nonNull(reservationDTO.getItinerary())
+                && Objects.nonNull(reservationDTO.getItinerary().getSegment())
+                && reservationDTO.getItinerary().getSegment().stream().allMatch(segment -> Objects.nonNull(segment)
+                        && Objects.nonNull(segment.getOrigin()) && Objects.nonNull(segment.getDestination()));
+    }
+
+    private Set<String> getCodes(ReservationDTO reservationDTO) {
+        Set<String> codes = new HashSet<>();
+        for (SegmentDTO segmentDTO : reservationDTO.getItinerary().getSegment()) {
+            codes.add(segmentDTO.getOrigin());
+            codes.add(segmentDTO.getDestination());
+        }
+        return codes;
+    }
+
+    private List<ReservationResultDTO> persistAll(List<ReservationDTO> reservations, List<Integer> indexes,
+            Set<String> cities) {
+        List<ReservationResultDTO> results = new ArrayList<>();
+        Map<Integer, Reservation> valid = new LinkedHashMap<>();
+
+        for (Integer index : indexes) {
+            ReservationDTO reservation = reservations.get(index);
+            if (!hasCodes(reservation)) {
+                results.add(failed(index, APIError.VALIDATION_ERROR,
+                        List.of("itinerary - must have segments with origin and destination")));
+            } else if (Objects.nonNull(reservation.getId())) {
+                results.add(failed(index, APIError.RESERVATION_WITH_SAME_ID, List.of()));
+            } else if (!cities.containsAll(getCodes(reservation))) {
+                results.add(failed(index, APIError.VALIDATION_ERROR, List.of()));
+            } else {
+                Reservation transformed = conversionService.convert(reservation, Reservation.class);
+                Set<ConstraintViolation<Reservation>> violations = validator.validate(transformed);
+                if (violations.isEmpty()) {
+                    valid.put(index, transformed);
+                } else {
+                    results.add(failed(index, APIError.VALIDATION_ERROR,
+                            violations.stream()
+                                    .map(error -> String.format("%s - %s", error.getPropertyPath(), error.getMessage()))
+                                    .toList()));
+                }
+            }
+        }
+
+        try {
+            repository.saveAll(valid.values());
+            valid.forEach((index, reservation) -> results.add(new ReservationResultDTO(index, reservation.getId(),
+                    HttpStatus.CREATED.value(), HttpStatus.CREATED.getReasonPhrase(), List.of())));
+        } catch (DataAccessException e) {
+            LOGGER.error("Error saving the reservations {}", valid.keySet(), e);
+            valid.keySet().forEach(index -> results.add(new ReservationResultDTO(index, null,
+                    HttpStatus.INTERNAL_SERVER_ERROR.value(), e.getMostSpecificCause().getMessage(), List.of())));
+        }
+
+        results.sort(Comparator.comparingInt(ReservationResultDTO::getIndex));
+        return results;
+    }
+
+    private ReservationResultDTO failed(int index, APIError error, List<String> reasons) {
+        return new ReservationResultDTO(index, null, error.getHttpStatus().value(), error.getMessage(), reasons);
+    }
+
     private void validateEntity(Reservation transformed) {
-        ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-        Validator validator = factory.getValidator();
         Set<ConstraintViolation<Reservation>> violations = validator.validate(transformed);
         if (!violations.isEmpty()) {
             throw new ConstraintViolationException(violations);
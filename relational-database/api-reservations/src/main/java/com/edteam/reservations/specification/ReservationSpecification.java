@@ -1,18 +1,37 @@
 package com.edteam.reservations.specification;
 
+import com.edteam.reservations.dto.ReservationCursorDTO;
 import com.edteam.reservations.dto.SearchReservationCriteriaDTO;
+import com.edteam.reservations.enums.APIError;
+import com.edteam.reservations.exception.EdteamException;
+import com.edteam.reservations.model.Passenger;
 import com.edteam.reservations.model.Reservation;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 public class ReservationSpecification {
 
     public static Specification<Reservation> withSearchCriteria(SearchReservationCriteriaDTO criteria) {
+        // Sorting by a field without an index would sort the whole result before reading the page
+        if (criteria.getSortField() != null
+                && !SearchReservationCriteriaDTO.SORT_FIELDS.contains(criteria.getSortField())) {
+            throw new EdteamException(APIError.VALIDATION_ERROR);
+        }
+
         return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
 
@@ -20,13 +39,8 @@ public class ReservationSpecification {
                 predicates.add(criteriaBuilder.equal(root.get("itinerary").get("id"), criteria.getItineraryId()));
             }
 
-            if (criteria.getFirstName() != null) {
-                predicates
-                        .add(criteriaBuilder.equal(root.join("passengers").get("firstName"), criteria.getFirstName()));
-            }
-
-            if (criteria.getLastName() != null) {
-                predicates.add(criteriaBuilder.equal(root.join("passengers").get("lastName"), criteria.getLastName()));
+            if (criteria.getFirstName() != null || criteria.getLastName() != null) {
+                predicates.add(criteriaBuilder.exists(withPassenger(criteria, root, query, criteriaBuilder)));
             }
 
             if (criteria.getReservationDate() != null) {
@@ -35,14 +49,71 @@ public class ReservationSpecification {
 
             // Order by specification
             if (criteria.getSortingDirection() != null && criteria.getSortField() != null) {
-                if (criteria.getSortingDirection().equals("desc")) {
-                    query.orderBy(criteriaBuilder.desc(root.get(criteria.getSortField())));
-                } else {
-                    query.orderBy(criteriaBuilder.desc(root.get(criteria.getSortField())));
-                }
+                Path<?> field = root.get(criteria.getSortField());
+                query.orderBy(criteria.getSortingDirection().equals("desc") ? criteriaBuilder.desc(field)
+                        : criteriaBuilder.asc(field));
             }
 
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
     }
+
+    // The passengers are joined once inside an EXISTS subquery, so both names are checked on the same passenger and
+    // each reservation is returned once whatever the number of passengers, which keeps the size of the page
+    private static Subquery<Long> withPassenger(SearchReservationCriteriaDTO criteria, Root<Reservation> root,
+            CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
+        Subquery<Long> subquery = query.subquery(Long.class);
+        Join<Reservation, Passenger> passenger = subquery.correlate(root).join("passengers");
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (criteria.getFirstName() != null) {
+            predicates.add(criteriaBuilder.equal(passenger.get("firstName"), criteria.getFirstName()));
+        }
+
+        if (criteria.getLastName() != null) {
+            predicates.add(criteriaBuilder.equal(passenger.get("lastName"), criteria.getLastName()));
+        }
+
+        return subquery.select(passenger.get("id")).where(predicates.toArray(new Predicate[0]));
+    }
+
+    // The page starts after the last reservation of the previous one, comparing the sort field and then the id, so
+    // the database seeks in the index instead of reading and discarding the rows of all the previous pages
+    public static Specification<Reservation> withKeyset(SearchReservationCriteriaDTO criteria,
+            ReservationCursorDTO cursor) {
+        Specification<Reservation> search = withSearchCriteria(criteria);
+        return (root, query, criteriaBuilder) -> {
+            Predicate predicate = search.toPredicate(root, query, criteriaBuilder);
+            Path<Long> id = root.get("id");
+
+            if ("id".equals(cursor.getSortField())) {
+                query.orderBy(order(criteriaBuilder, id, cursor));
+                if (cursor.getId() != null) {
+                    predicate = criteriaBuilder.and(predicate, after(criteriaBuilder, id, cursor.getId(), cursor));
+                }
+                return predicate;
+            }
+
+            Path<LocalDate> field = root.get(cursor.getSortField());
+            query.orderBy(order(criteriaBuilder, field, cursor), order(criteriaBuilder, id, cursor));
+            if (cursor.getId() != null) {
+                LocalDate value = cursor.getDateValue();
+                predicate = criteriaBuilder.and(predicate,
+                        criteriaBuilder.or(after(criteriaBuilder, field, value, cursor),
+                                criteriaBuilder.and(criteriaBuilder.equal(field, value),
+                                        after(criteriaBuilder, id, cursor.getId(), cursor))));
+            }
+            return predicate;
+        };
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate after(CriteriaBuilder criteriaBuilder,
+            Expression<? extends Y> expression, Y value, ReservationCursorDTO cursor) {
+        return cursor.isAscending() ? criteriaBuilder.greaterThan(expression, value)
+                : criteriaBuilder.lessThan(expression, value);
+    }
+
+    private static Order order(CriteriaBuilder criteriaBuilder, Expression<?> expression, ReservationCursorDTO cursor) {
+        return cursor.isAscending() ? criteriaBuilder.asc(expression) : criteriaBuilder.desc(expression);
+    }
 }
@@ -0,0 +1,13 @@
+-- MySQL has no sequences, so Hibernate keeps the next value of the ids in this table and takes them in blocks
+-- of 50. Unlike the AUTO_INCREMENT columns this allows to send the inserts in JDBC batches.
+CREATE TABLE `base_sequence` (
+                                 `next_val` bigint
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+INSERT INTO `base_sequence` (`next_val`)
+SELECT COALESCE(MAX(`id`), 0) + 51
+FROM (SELECT `id` FROM `reservation`
+      UNION ALL SELECT `id` FROM `passenger`
+      UNION ALL SELECT `id` FROM `itinerary`
+      UNION ALL SELECT `id` FROM `segment`
+      UNION ALL SELECT `id` FROM `price`) AS `ids`;
@@ -0,0 +1,9 @@
+-- The search filters by the creation date, by the name of the passengers or by the itinerary and sorts by the id or
+-- by the creation date, InnoDB adds the id at the end of each secondary index so the sort and the keyset pagination
+-- read the rows in the order of the index
+CREATE INDEX `IDX_reservation_creation_date` ON `reservation` (`creation_date`, `id`);
+
+-- The passengers are found by the name and joined to the reservation with the id in the same index
+CREATE INDEX `IDX_passenger_first_name` ON `passenger` (`first_name`, `reservation_id`);
+
+CREATE INDEX `IDX_passenger_last_name` ON `passenger` (`last_name`, `reservation_id`);
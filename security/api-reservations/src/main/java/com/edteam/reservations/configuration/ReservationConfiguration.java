@@ -0,0 +1,109 @@
+package com.edteam.reservations.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "reservation")
+public class ReservationConfiguration {
+
+    private int catalogTimeout = 2000;
+
+    private int searchFetchSize = 100;
+
+    private int searchRate = 0;
+
+    private int bulkChunkSize = 50;
+
+    private boolean optimistic = false;
+
+    private boolean searchProjection = false;
+
+    private boolean cacheEnabled = true;
+
+    private int cacheMaximumSize = 10000;
+
+    private int cacheTtl = 60000;
+
+    private String cursorSecret;
+
+    public int getCatalogTimeout() {
+        return catalogTimeout;
+    }
+
+    public void setCatalogTimeout(int catalogTimeout) {
+        this.catalogTimeout = catalogTimeout;
+    }
+
+    public int getSearchFetchSize() {
+        return searchFetchSize;
+    }
+
+    public void setSearchFetchSize(int searchFetchSize) {
+        this.searchFetchSize = searchFetchSize;
+    }
+
+    public int getSearchRate() {
+        return searchRate;
+    }
+
+    public void setSearchRate(int searchRate) {
+        this.searchRate = searchRate;
+    }
+
+    public int getBulkChunkSize() {
+        return bulkChunkSize;
+    }
+
+    public void setBulkChunkSize(int bulkChunkSize) {
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    public boolean isOptimistic() {
+        return optimistic;
+    }
+
+    public void setOptimistic(boolean optimistic) {
+        this.optimistic = optimistic;
+    }
+
+    public boolean isSearchProjection() {
+        return searchProjection;
+    }
+
+    public void setSearchProjection(boolean searchProjection) {
+        this.searchProjection = searchProjection;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    public void setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    public int getCacheMaximumSize() {
+        return cacheMaximumSize;
+    }
+
+    public void setCacheMaximumSize(int cacheMaximumSize) {
+        this.cacheMaximumSize = cacheMaximumSize;
+    }
+
+    public int getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public void setCacheTtl(int cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    public String getCursorSecret() {
+        return cursorSecret;
+    }
+
+    public void setCursorSecret(String cursorSecret) {
+        this.cursorSecret = cursorSecret;
+    }
+}
@@ -1,24 +1,30 @@
 package com.edteam.reservations.connector;
 
-import com.edteam.reservations.connector.configuration.EndpointConfiguration;
-import com.edteam.reservations.connector.configuration.HostConfiguration;
+import com.edteam.reservations.connector.configuration.CacheConfiguration;
 import com.edteam.reservations.connector.configuration.HttpConnectorConfiguration;
 import com.edteam.reservations.connector.response.CityDTO;
-import io.netty.channel.ChannelOption;
-import io.netty.handler.timeout.ReadTimeoutHandler;
-import io.netty.handler.timeout.WriteTimeoutHandler;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.netty.http.client.HttpClient;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 @Component
@@ -29,35 +35,181 @@ public class CatalogConnector {
 
     private final String ENDPOINT = "get-city";
 
-    private HttpConnectorConfiguration configuration;
+    private final String BATCH_ENDPOINT = "get-cities";
+
+    private final int BATCH_SIZE = 50;
+
+    private final WebClient client;
+
+    private final Optional<WebClient> batchClient;
+
+    private final CityIndexLoader index;
+
+    private final ResilienceRegistry resilience;
+
+    private final LatencyRegistry latency;
+
+    private final HedgingRegistry hedging;
+
+    private final boolean cacheEnabled;
+
+    private final Cache<String, Optional<CityDTO>> cities;
+
+    private final Map<String, Mono<Optional<CityDTO>>> inFlight = new ConcurrentHashMap<>();
 
     @Autowired
-    public CatalogConnector(HttpConnectorConfiguration configuration) {
-        this.configuration = configuration;
+    public CatalogConnector(WebClientRegistry registry, CityIndexLoader index, ResilienceRegistry resilience,
+            LatencyRegistry latency, HedgingRegistry hedging, HttpConnectorConfiguration configuration,
+            MeterRegistry meterRegistry) {
+        this.client = registry.getClient(HOST, ENDPOINT);
+        this.batchClient = registry.findClient(HOST, BATCH_ENDPOINT);
+        this.index = index;
+        this.resilience = resilience;
+        this.latency = latency;
+        this.hedging = hedging;
+
+        CacheConfiguration cacheConfiguration = configuration.getHosts().get(HOST).getCache();
+        this.cacheEnabled = cacheConfiguration.isEnabled();
+        this.cities = Caffeine.newBuilder().maximumSize(cacheConfiguration.getMaximumSize())
+                .expireAfter(new CityExpiry(cacheConfiguration)).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cities, "catalog-cities");
     }
 
     public Mono<CityDTO> getCity(String code) {
+        CityDTO indexed = index.find(code);
+        if (indexed != null) {
+            return Mono.just(indexed);
+        }
+
+        if (cacheEnabled) {
+            Optional<CityDTO> cached = cities.getIfPresent(code);
+            if (cached != null) {
+                return Mono.justOrEmpty(cached);
+            }
+        }
+        return Mono.defer(() -> inFlight.computeIfAbsent(code, this::sharedFetchCity)).flatMap(Mono::justOrEmpty);
+    }
+
+    // Resolves every code, a bulk import needs the cities of all its items even when some of them do not exist
+    public Mono<Map<String, CityDTO>> getCities(Set<String> codes) {
+        Map<String, CityDTO> cached = new HashMap<>();
+        Set<String> missing = findCached(codes, cached);
+        if (missing.isEmpty()) {
+            return Mono.just(cached);
+        }
+
+        Mono<Map<String, CityDTO>> fetched = batchClient.map(batch -> fetchCities(batch, missing))
+                .orElseGet(() -> Flux.fromIterable(missing)
+                        .flatMap(code -> getCity(code).map(city -> Map.entry(code, city)))
+                        .collectMap(Map.Entry::getKey, Map.Entry::getValue));
+
+        return fetched.map(result -> {
+            Map<String, CityDTO> response = new HashMap<>(cached);
+            response.putAll(result);
+            return response;
+        });
+    }
+
+    // Only tells if all the codes exist, so without the batch endpoint the first code without a city cancels the
+    // other lookups instead of waiting for all of them
+    public Mono<Boolean> containsCities(Set<String> codes) {
+        Map<String, CityDTO> cached = new HashMap<>();
+        Set<String> missing = findCached(codes, cached);
+        if (cached.size() + missing.size() < codes.size()) {
+            return Mono.just(false);
+        }
+        if (missing.isEmpty()) {
+            return Mono.just(true);
+        }
+
+        return batchClient.map(batch -> fetchCities(batch, missing).map(result -> result.keySet().containsAll(missing)))
+                .orElseGet(() -> Flux.fromIterable(missing).flatMap(code -> getCity(code).hasElement())
+                        .all(found -> found));
+    }
+
+    // Puts in the map the cities found in the index or in the cache and returns the codes that must be requested
+    private Set<String> findCached(Set<String> codes, Map<String, CityDTO> found) {
+        Set<String> missing = new HashSet<>();
+        for (String code : codes) {
+            CityDTO indexed = index.find(code);
+            Optional<CityDTO> city = indexed != null ? Optional.of(indexed)
+                    : cacheEnabled ? cities.getIfPresent(code) : null;
+            if (city == null) {
+                missing.add(code);
+            } else {
+                city.ifPresent(value -> found.put(code, value));
+            }
+        }
+        return missing;
+    }
+
+    // All the concurrent lookups of the same code subscribe to this Mono, so only one call reaches api-catalog
+    private Mono<Optional<CityDTO>> sharedFetchCity(String code) {
+        return fetchCity(code).doOnNext(city -> {
+            if (cacheEnabled) {
+                cities.put(code, city);
+            }
+        }).doFinally(signal -> inFlight.remove(code)).cache();
+    }
+
+    private Mono<Optional<CityDTO>> fetchCity(String code) {
         LOGGER.info("calling to api-catalog");
 
-        HostConfiguration hostConfiguration = configuration.getHosts().get(HOST);
-        EndpointConfiguration endpointConfiguration = hostConfiguration.getEndpoints().get(ENDPOINT);
-
-        HttpClient httpClient = HttpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
-                        Math.toIntExact(endpointConfiguration.getConnectionTimeout()))
-                .doOnConnected(conn -> conn
-                        .addHandler(
-                                new ReadTimeoutHandler(endpointConfiguration.getReadTimeout(), TimeUnit.MILLISECONDS))
-                        .addHandler(new WriteTimeoutHandler(endpointConfiguration.getWriteTimeout(),
-                                TimeUnit.MILLISECONDS)));
-
-        WebClient client = WebClient.builder()
-                .baseUrl("http://" + hostConfiguration.getHost() + ":" + hostConfiguration.getPort()
-                        + endpointConfiguration.getUrl())
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .defaultHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
-                .clientConnector(new ReactorClientHttpConnector(httpClient)).build();
-
-        return client.get().uri(urlEncoder -> urlEncoder.build(code)).retrieve().bodyToMono(CityDTO.class);
+        Mono<Optional<CityDTO>> call = client.get().uri(urlEncoder -> urlEncoder.build(code)).retrieve()
+                .bodyToMono(CityDTO.class).map(Optional::of).defaultIfEmpty(Optional.empty())
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.just(Optional.empty()));
+        return execute(ENDPOINT, call);
+    }
+
+    // The codes go in the query string, so they are requested in batches to keep the size of the URL bounded
+    private Mono<Map<String, CityDTO>> fetchCities(WebClient batch, Set<String> codes) {
+        return Flux.fromIterable(codes).buffer(BATCH_SIZE).flatMap(chunk -> fetchCities(batch, chunk))
+                .reduceWith(HashMap::new, (result, cities) -> {
+                    result.putAll(cities);
+                    return result;
+                });
+    }
+
+    private Mono<Map<String, CityDTO>> fetchCities(WebClient batch, List<String> codes) {
+        LOGGER.info("calling to api-catalog for {} cities", codes.size());
+
+        Mono<Map<String, CityDTO>> call = batch.get().uri(urlEncoder -> urlEncoder.build(String.join(",", codes)))
+                .retrieve().bodyToFlux(CityDTO.class).collectMap(CityDTO::getCode);
+        return execute(BATCH_ENDPOINT, call).doOnNext(result -> {
+            if (cacheEnabled) {
+                codes.forEach(code -> cities.put(code, Optional.ofNullable(result.get(code))));
+            }
+        });
+    }
+
+    private <T> Mono<T> execute(String endpoint, Mono<T> call) {
+        return hedging.hedge(HOST, endpoint, resilience.decorate(HOST, endpoint, latency.record(HOST, endpoint, call)));
+    }
+
+    private static class CityExpiry implements Expiry<String, Optional<CityDTO>> {
+
+        private final long ttl;
+
+        private final long negativeTtl;
+
+        CityExpiry(CacheConfiguration configuration) {
+            this.ttl = TimeUnit.MILLISECONDS.toNanos(configuration.getTtl());
+            this.negativeTtl = TimeUnit.MILLISECONDS.toNanos(configuration.getNegativeTtl());
+        }
+
+        @Override
+        public long expireAfterCreate(String code, Optional<CityDTO> city, long currentTime) {
+            return city.isPresent() ? ttl : negativeTtl;
+        }
+
+        @Override
+        public long expireAfterUpdate(String code, Optional<CityDTO> city, long currentTime, long currentDuration) {
+            return expireAfterCreate(code, city, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String code, Optional<CityDTO> city, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
@@ -0,0 +1,24 @@
+package com.edteam.reservations.connector.configuration;
+
+public class BulkheadConfiguration {
+
+    private boolean enabled = true;
+
+    private int maxConcurrentCalls = 25;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public void setMaxConcurrentCalls(int maxConcurrentCalls) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+    }
+}
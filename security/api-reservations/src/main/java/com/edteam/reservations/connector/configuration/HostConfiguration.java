@@ -8,6 +8,12 @@ public class HostConfiguration {
 
     private int port;
 
+    private PoolConfiguration pool = new PoolConfiguration();
+
+    private CacheConfiguration cache = new CacheConfiguration();
+
+    private IndexConfiguration index = new IndexConfiguration();
+
     private HashMap<String, EndpointConfiguration> endpoints;
 
     public String getHost() {
@@ -26,6 +32,30 @@ public class HostConfiguration {
         this.port = port;
     }
 
+    public PoolConfiguration getPool() {
+        return pool;
+    }
+
+    public void setPool(PoolConfiguration pool) {
+        this.pool = pool;
+    }
+
+    public CacheConfiguration getCache() {
+        return cache;
+    }
+
+    public void setCache(CacheConfiguration cache) {
+        this.cache = cache;
+    }
+
+    public IndexConfiguration getIndex() {
+        return index;
+    }
+
+    public void setIndex(IndexConfiguration index) {
+        this.index = index;
+    }
+
     public HashMap<String, EndpointConfiguration> getEndpoints() {
         return endpoints;
     }
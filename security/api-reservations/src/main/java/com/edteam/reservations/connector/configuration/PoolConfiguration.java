@@ -0,0 +1,54 @@
+package com.edteam.reservations.connector.configuration;
+
+public class PoolConfiguration {
+
+    private int maxConnections = 50;
+
+    private int pendingAcquireMaxCount = 100;
+
+    private int pendingAcquireTimeout = 2000;
+
+    private int maxIdleTime = 30000;
+
+    private int evictionInterval = 60000;
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public void setMaxConnections(int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    public int getPendingAcquireMaxCount() {
+        return pendingAcquireMaxCount;
+    }
+
+    public void setPendingAcquireMaxCount(int pendingAcquireMaxCount) {
+        this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+    }
+
+    public int getPendingAcquireTimeout() {
+        return pendingAcquireTimeout;
+    }
+
+    public void setPendingAcquireTimeout(int pendingAcquireTimeout) {
+        this.pendingAcquireTimeout = pendingAcquireTimeout;
+    }
+
+    public int getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    public void setMaxIdleTime(int maxIdleTime) {
+        this.maxIdleTime = maxIdleTime;
+    }
+
+    public int getEvictionInterval() {
+        return evictionInterval;
+    }
+
+    public void setEvictionInterval(int evictionInterval) {
+        this.evictionInterval = evictionInterval;
+    }
+}
@@ -1,8 +1,13 @@
 package com.edteam.reservations.dto;
 
 import java.time.LocalDate;
+import java.util.List;
 
 public class SearchReservationCriteriaDTO {
+
+    // The fields that can be sorted, each one is the first column of an index that ends with the id
+    public static final List<String> SORT_FIELDS = List.of("id", "creationDate");
+
     private Long itineraryId;
     private String firstName;
     private String lastName;
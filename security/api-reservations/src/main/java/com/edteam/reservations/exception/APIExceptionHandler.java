@@ -2,6 +2,8 @@ package com.edteam.reservations.exception;
 
 import com.edteam.reservations.dto.ErrorDTO;
 import com.edteam.reservations.enums.APIError;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.http.HttpHeaders;
@@ -16,6 +18,7 @@ import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExcep
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestControllerAdvice
 public class APIExceptionHandler extends ResponseEntityExceptionHandler {
@@ -25,6 +28,18 @@ public class APIExceptionHandler extends ResponseEntityExceptionHandler {
         return ResponseEntity.status(e.getStatus()).body(new ErrorDTO(e.getDescription(), e.getReasons()));
     }
 
+    @ExceptionHandler({ CallNotPermittedException.class, BulkheadFullException.class })
+    public ResponseEntity<ErrorDTO> catalogUnavailable(RuntimeException e, WebRequest request) {
+        return ResponseEntity.status(APIError.CATALOG_UNAVAILABLE.getHttpStatus())
+                .body(new ErrorDTO(APIError.CATALOG_UNAVAILABLE.getMessage(), List.of(e.getMessage())));
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorDTO> exceedOperations(RejectedExecutionException e, WebRequest request) {
+        return ResponseEntity.status(APIError.EXCEED_NUMBER_OPERATIONS.getHttpStatus())
+                .body(new ErrorDTO(APIError.EXCEED_NUMBER_OPERATIONS.getMessage(), List.of()));
+    }
+
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex,
             HttpHeaders headers, HttpStatusCode status, WebRequest request) {
@@ -3,6 +3,7 @@ package com.edteam.reservations.model;
 import jakarta.persistence.*;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Cascade;
 import org.hibernate.annotations.CascadeType;
 
@@ -17,6 +18,7 @@ public class Itinerary extends Base {
     @OneToMany(fetch = FetchType.LAZY)
     @Cascade(CascadeType.ALL)
     @JoinColumn(name = "itinerary_id")
+    @BatchSize(size = 50)
     private List<Segment> segment;
 
     @OneToOne(fetch = FetchType.LAZY)
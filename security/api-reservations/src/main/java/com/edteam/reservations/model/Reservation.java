@@ -4,6 +4,7 @@ import com.edteam.reservations.listener.ReservationEntityListener;
 import jakarta.persistence.*;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Cascade;
 import org.hibernate.annotations.CascadeType;
 
@@ -11,16 +12,22 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Objects;
 
+// The itinerary and its price are joined in the same select, the collections are loaded in batches for all the
+// reservations of the page
 @Entity
 @EntityListeners(ReservationEntityListener.class)
+@NamedEntityGraph(name = Reservation.ITINERARY_GRAPH, attributeNodes = @NamedAttributeNode(value = "itinerary", subgraph = "itinerary"), subgraphs = @NamedSubgraph(name = "itinerary", attributeNodes = @NamedAttributeNode("price")))
 public class Reservation extends Base {
 
+    public static final String ITINERARY_GRAPH = "Reservation.itinerary";
+
     @OrderBy("lastName ASC")
     @Valid
     @NotEmpty(message = "You need at least one passenger")
     @OneToMany(fetch = FetchType.LAZY)
     @Cascade(CascadeType.ALL)
     @JoinColumn(name = "reservation_id")
+    @BatchSize(size = 50)
     private List<Passenger> passengers;
 
     @Valid
@@ -0,0 +1,85 @@
+package com.edteam.reservations.service;
+
+import com.edteam.reservations.configuration.IdempotencyConfiguration;
+import com.edteam.reservations.dto.ReservationDTO;
+import com.edteam.reservations.enums.APIError;
+import com.edteam.reservations.exception.EdteamException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+@Service
+public class IdempotencyService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private ObjectMapper objectMapper;
+
+    private Cache<String, Result> results;
+
+    @Autowired
+    public IdempotencyService(IdempotencyConfiguration configuration, ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.results = Caffeine.newBuilder().maximumSize(configuration.getMaximumSize())
+                .expireAfterWrite(Duration.ofMillis(configuration.getTtl())).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "idempotency");
+    }
+
+    // The first request with a key stores the cached result of the operation, the repeats and the concurrent
+    // duplicates subscribe to the same result instead of executing the operation again. A failed operation is
+    // removed so the client can retry it with the same key. The key belongs to the caller and to the request it was
+    // first used with, a repeat with another request is rejected instead of returning a result that does not match.
+    public Mono<ReservationDTO> execute(Principal principal, String key, Object request,
+            Supplier<Mono<ReservationDTO>> operation) {
+        if (key == null) {
+            return operation.get();
+        }
+
+        return Mono.defer(() -> {
+            String fingerprint = getFingerprint(request);
+            Result result = results.get(getScopedKey(principal, key),
+                    k -> new Result(fingerprint, operation.get().doOnError(e -> {
+                        LOGGER.debug("The operation with the idempotency key {} failed", k);
+                        results.invalidate(k);
+                    }).cache()));
+
+            if (!result.fingerprint().equals(fingerprint)) {
+                LOGGER.debug("The idempotency key {} was used with another request", key);
+                return Mono.error(new EdteamException(APIError.IDEMPOTENCY_KEY_REUSED));
+            }
+            return result.response();
+        });
+    }
+
+    private String getScopedKey(Principal principal, String key) {
+        return (principal == null ? "" : principal.getName()) + ":" + key;
+    }
+
+    private String getFingerprint(Object request) {
+        try {
+            return HexFormat.of()
+                    .formatHex(MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request)));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("The request can not be hashed", e);
+        }
+    }
+
+    private record Result(String fingerprint, Mono<ReservationDTO> response) {
+    }
+}